@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.benchmark;
+
+import com.github.pwittchen.prefser.library.rx2.GsonConverter;
+import com.github.pwittchen.prefser.library.rx2.InMemoryPreferences;
+import com.github.pwittchen.prefser.library.rx2.Prefser;
+import com.github.pwittchen.prefser.library.rx2.PrefserSettings;
+import com.github.pwittchen.prefser.library.rx2.TypeToken;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares values stored as JSON with default GsonConverter and in binary form
+ * with default binary codecs. Sizes of stored values are printed during setup.
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.SECONDS)
+public class BinaryCodecBenchmark {
+  private static final TypeToken<Map<String, Integer>> MAP_TYPE_TOKEN =
+      new TypeToken<Map<String, Integer>>() {
+      };
+
+  @Param({ "10", "1000" }) public int size;
+
+  private Prefser jsonPrefser;
+  private Prefser binaryPrefser;
+  private double[] array;
+  private Map<String, Integer> map;
+
+  @Setup public void setUp() {
+    InMemoryPreferences jsonPreferences = new InMemoryPreferences();
+    InMemoryPreferences binaryPreferences = new InMemoryPreferences();
+    jsonPrefser = new Prefser(jsonPreferences);
+    binaryPrefser = new Prefser(binaryPreferences, new GsonConverter(),
+        PrefserSettings.builder().defaultBinaryCodecs().build());
+
+    Random random = new Random(size);
+    array = new double[size];
+    map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      array[i] = random.nextDouble() * 1000;
+      map.put("key" + i, random.nextInt(100000));
+    }
+
+    for (Prefser prefser : new Prefser[] { jsonPrefser, binaryPrefser }) {
+      prefser.put("array", array);
+      prefser.put("map", map, MAP_TYPE_TOKEN);
+    }
+
+    System.out.println("size of double[" + size + "]: json = "
+        + jsonPreferences.getString("array", "").length() + ", binary = "
+        + binaryPreferences.getString("array", "").length() + " chars");
+    System.out.println("size of Map[" + size + "]: json = "
+        + jsonPreferences.getString("map", "").length() + ", binary = "
+        + binaryPreferences.getString("map", "").length() + " chars");
+  }
+
+  @Benchmark public double[] getArrayFromJson() {
+    return jsonPrefser.get("array", double[].class, null);
+  }
+
+  @Benchmark public double[] getArrayFromBinary() {
+    return binaryPrefser.get("array", double[].class, null);
+  }
+
+  @Benchmark public Map<String, Integer> getMapFromJson() {
+    return jsonPrefser.get("map", MAP_TYPE_TOKEN, null);
+  }
+
+  @Benchmark public Map<String, Integer> getMapFromBinary() {
+    return binaryPrefser.get("map", MAP_TYPE_TOKEN, null);
+  }
+
+  @Benchmark public void putArrayAsJson() {
+    jsonPrefser.put("array", array);
+  }
+
+  @Benchmark public void putArrayAsBinary() {
+    binaryPrefser.put("array", array);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.benchmark;
+
+import com.github.pwittchen.prefser.library.rx2.InMemoryPreferences;
+import com.github.pwittchen.prefser.library.rx2.Prefser;
+import com.github.pwittchen.prefser.library.rx2.TypeToken;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures get and put of objects and lists stored as JSON with default GsonConverter.
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonBenchmark {
+  private static final TypeToken<List<SampleObject>> LIST_TYPE_TOKEN =
+      new TypeToken<List<SampleObject>>() {
+      };
+
+  @Param({ "10", "1000" }) public int listSize;
+
+  private Prefser prefser;
+  private SampleObject object;
+  private List<SampleObject> list;
+
+  @Setup public void setUp() {
+    prefser = new Prefser(new InMemoryPreferences());
+    object = new SampleObject(1, "name", 0.5, true);
+    list = SampleObject.createList(listSize);
+    prefser.put("object", object);
+    prefser.put("list", list, LIST_TYPE_TOKEN);
+  }
+
+  @Benchmark public SampleObject getObject() {
+    return prefser.get("object", SampleObject.class, null);
+  }
+
+  @Benchmark public List<SampleObject> getList() {
+    return prefser.get("list", LIST_TYPE_TOKEN, null);
+  }
+
+  @Benchmark public void putObject() {
+    prefser.put("object", object);
+  }
+
+  @Benchmark public void putList() {
+    prefser.put("list", list, LIST_TYPE_TOKEN);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.benchmark;
+
+import com.github.pwittchen.prefser.library.rx2.InMemoryPreferences;
+import com.github.pwittchen.prefser.library.rx2.Prefser;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.Consumer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures put of a value observed by a given number of subscribers
+ * (each of them reads the value), put of a value, which is not observed
+ * and put observed by the same number of observePreferences() subscribers.
+ * observePreferences() subscribers observe other Prefser, so they don't receive
+ * puts of the other benchmarks.
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.SECONDS)
+public class ObserveBenchmark {
+  @Param({ "1", "10", "100" }) public int subscribers;
+
+  private final CompositeDisposable disposables = new CompositeDisposable();
+  private Prefser prefser;
+  private Prefser observedPrefser;
+  private int counter;
+  private volatile Object sink;
+
+  @Setup public void setUp() {
+    prefser = new Prefser(new InMemoryPreferences());
+    observedPrefser = new Prefser(new InMemoryPreferences());
+    Consumer<Object> consumer = new Consumer<Object>() {
+      @Override public void accept(Object value) {
+        sink = value;
+      }
+    };
+
+    for (int i = 0; i < subscribers; i++) {
+      disposables.add(prefser.observe("observed", Integer.class, 0).subscribe(consumer));
+      disposables.add(prefser.observe("observedObject", SampleObject.class, null)
+          .subscribe(consumer));
+      disposables.add(prefser.observe("other" + i, Integer.class, 0).subscribe(consumer));
+      disposables.add(observedPrefser.observePreferences().subscribe(consumer));
+    }
+  }
+
+  @TearDown public void tearDown() {
+    disposables.clear();
+  }
+
+  @Benchmark public void putObserved() {
+    prefser.put("observed", counter++);
+  }
+
+  @Benchmark public void putObservedObject() {
+    prefser.put("observedObject", new SampleObject(counter++, "name", 0.5, true));
+  }
+
+  @Benchmark public void putNotObserved() {
+    prefser.put("notObserved", counter++);
+  }
+
+  @Benchmark public void putObservedByPreferencesSubscribers() {
+    observedPrefser.put("observed", counter++);
+  }
+}
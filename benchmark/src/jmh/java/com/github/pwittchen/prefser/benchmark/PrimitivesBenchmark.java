@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.benchmark;
+
+import com.github.pwittchen.prefser.library.rx2.InMemoryPreferences;
+import com.github.pwittchen.prefser.library.rx2.Preference;
+import com.github.pwittchen.prefser.library.rx2.Prefser;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures get and put of values stored directly in SharedPreferences.
+ * Put benchmarks write a new value every time, so each of them notifies listeners.
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.SECONDS)
+public class PrimitivesBenchmark {
+  private Prefser prefser;
+  private Preference<Integer> intPreference;
+  private int counter;
+
+  @Setup public void setUp() {
+    prefser = new Prefser(new InMemoryPreferences());
+    prefser.put("boolean", true);
+    prefser.put("int", 42);
+    prefser.put("long", 42L);
+    prefser.put("double", 4.2);
+    prefser.put("string", "value");
+    intPreference = prefser.preference("int", Integer.class, 0);
+  }
+
+  @Benchmark public Boolean getBoolean() {
+    return prefser.get("boolean", Boolean.class, false);
+  }
+
+  @Benchmark public Integer getInt() {
+    return prefser.get("int", Integer.class, 0);
+  }
+
+  @Benchmark public Long getLong() {
+    return prefser.get("long", Long.class, 0L);
+  }
+
+  @Benchmark public Double getDouble() {
+    return prefser.get("double", Double.class, 0.0);
+  }
+
+  @Benchmark public String getString() {
+    return prefser.get("string", String.class, "");
+  }
+
+  @Benchmark public Integer getIntPreference() {
+    return intPreference.get();
+  }
+
+  @Benchmark public int getIntPrimitive() {
+    return prefser.getInt("int", 0);
+  }
+
+  @Benchmark public double getDoublePrimitive() {
+    return prefser.getDouble("double", 0.0);
+  }
+
+  @Benchmark public void putIntPrimitive() {
+    prefser.putInt("int", counter++);
+  }
+
+  @Benchmark public void putInt() {
+    prefser.put("int", counter++);
+  }
+
+  @Benchmark public void putIntPreference() {
+    intPreference.set(counter++);
+  }
+
+  @Benchmark public void putDouble() {
+    prefser.put("double", counter++ * 0.5);
+  }
+
+  @Benchmark public void putString() {
+    prefser.put("string", String.valueOf(counter++));
+  }
+}
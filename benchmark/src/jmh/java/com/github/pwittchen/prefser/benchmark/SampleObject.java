@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Object stored as JSON in benchmarks.
+ */
+final class SampleObject {
+  private final int id;
+  private final String name;
+  private final double score;
+  private final boolean active;
+
+  SampleObject(int id, String name, double score, boolean active) {
+    this.id = id;
+    this.name = name;
+    this.score = score;
+    this.active = active;
+  }
+
+  static List<SampleObject> createList(int size) {
+    List<SampleObject> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(new SampleObject(i, "name" + i, i * 0.5, i % 2 == 0));
+    }
+    return list;
+  }
+}
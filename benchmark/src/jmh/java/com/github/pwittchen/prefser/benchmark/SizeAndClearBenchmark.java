@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.benchmark;
+
+import com.github.pwittchen.prefser.library.rx2.InMemoryPreferences;
+import com.github.pwittchen.prefser.library.rx2.Prefser;
+import com.github.pwittchen.prefser.library.rx2.Transaction;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures size() and clear() of preferences with a given number of entries.
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.SECONDS)
+public class SizeAndClearBenchmark {
+  @Param({ "10", "5000" }) public int entries;
+
+  private Prefser prefser;
+
+  @Setup public void setUp() {
+    prefser = new Prefser(new InMemoryPreferences());
+  }
+
+  @Setup(Level.Invocation) public void fill() {
+    if (prefser.size() == entries) {
+      return;
+    }
+
+    Transaction transaction = prefser.edit();
+    for (int i = 0; i < entries; i++) {
+      transaction.put("key" + i, i);
+    }
+    transaction.apply();
+  }
+
+  @Benchmark public int size() {
+    return prefser.size();
+  }
+
+  @Benchmark public void clear() {
+    prefser.clear();
+  }
+}
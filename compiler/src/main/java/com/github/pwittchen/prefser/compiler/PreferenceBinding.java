@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Contains all methods of the interface, which access preference with a given key.
+ */
+final class PreferenceBinding {
+  enum Kind {
+    GETTER, SETTER, HANDLE
+  }
+
+  static final class Method {
+    final ExecutableElement element;
+    final Kind kind;
+    final TypeMirror type;
+
+    Method(ExecutableElement element, Kind kind, TypeMirror type) {
+      this.element = element;
+      this.kind = kind;
+      this.type = type;
+    }
+
+    boolean isPrimitive() {
+      return type.getKind().isPrimitive();
+    }
+  }
+
+  final String key;
+  final List<Method> methods = new ArrayList<>();
+  TypeMirror boxedType;
+  String defaultValue; // as declared in the annotation or null if it's not set
+  String fieldName; // name of the Preference field or null if methods don't need it
+
+  PreferenceBinding(String key) {
+    this.key = key;
+  }
+
+  boolean needsPreferenceField() {
+    for (Method method : methods) {
+      if (method.kind == Kind.HANDLE || !method.isPrimitive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
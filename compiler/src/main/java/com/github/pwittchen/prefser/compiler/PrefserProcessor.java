@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getAnnotation;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getClassName;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getPackage;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getValue;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.toIdentifier;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.toStringLiteral;
+
+/**
+ * Generates implementations of interfaces annotated with PrefserPreferences.
+ * Generated class {@code <InterfaceName>_Prefser} reads and writes primitives
+ * with primitive methods of Prefser and other values with Preference handles
+ * created once in the constructor, so no type is looked up at runtime.
+ * Annotations are referenced by their names, so processor doesn't depend on the library.
+ */
+public final class PrefserProcessor extends AbstractProcessor {
+  private static final String PACKAGE = "com.github.pwittchen.prefser.library.rx2";
+  private static final String PREFSER_PREFERENCES = PACKAGE + ".PrefserPreferences";
+  private static final String PREFERENCE_KEY = PACKAGE + ".PreferenceKey";
+  private static final String PREFERENCE = PACKAGE + ".Preference";
+  private static final String SUFFIX = "_Prefser";
+
+  private Elements elements;
+  private Types types;
+  private Messager messager;
+
+  @Override public synchronized void init(ProcessingEnvironment processingEnvironment) {
+    super.init(processingEnvironment);
+    elements = processingEnvironment.getElementUtils();
+    types = processingEnvironment.getTypeUtils();
+    messager = processingEnvironment.getMessager();
+  }
+
+  @Override public Set<String> getSupportedAnnotationTypes() {
+    return new HashSet<>(Arrays.asList(PREFSER_PREFERENCES, PREFERENCE_KEY));
+  }
+
+  @Override public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment environment) {
+    TypeElement preferencesAnnotation = elements.getTypeElement(PREFSER_PREFERENCES);
+    TypeElement keyAnnotation = elements.getTypeElement(PREFERENCE_KEY);
+    if (preferencesAnnotation == null || keyAnnotation == null) {
+      return false;
+    }
+
+    for (Element element : environment.getElementsAnnotatedWith(keyAnnotation)) {
+      if (getAnnotation(element.getEnclosingElement(), PREFSER_PREFERENCES) == null) {
+        error(element, "@PreferenceKey can be used only in interface annotated with "
+            + "@PrefserPreferences");
+      }
+    }
+
+    for (Element element : environment.getElementsAnnotatedWith(preferencesAnnotation)) {
+      if (element.getKind() != ElementKind.INTERFACE) {
+        error(element, "@PrefserPreferences can be used only with interfaces");
+        continue;
+      }
+
+      TypeElement type = (TypeElement) element;
+      Map<String, PreferenceBinding> bindings = parseInterface(type);
+      if (bindings != null) {
+        writeClass(type, bindings);
+      }
+    }
+
+    return false;
+  }
+
+  private Map<String, PreferenceBinding> parseInterface(TypeElement type) {
+    boolean valid = true;
+    if (!type.getTypeParameters().isEmpty()) {
+      error(type, "@PrefserPreferences interface can't have type parameters");
+      valid = false;
+    }
+    for (Element element = type; element.getKind() != ElementKind.PACKAGE;
+        element = element.getEnclosingElement()) {
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        error(type, "@PrefserPreferences interface can't be private or nested in private class");
+        valid = false;
+      }
+    }
+
+    Map<String, PreferenceBinding> bindings = new LinkedHashMap<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+      if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE
+          || !method.getModifiers().contains(Modifier.ABSTRACT)) {
+        continue; // methods of Object, default and static methods
+      }
+      valid &= parseMethod(method, bindings);
+    }
+
+    for (PreferenceBinding binding : bindings.values()) {
+      valid &= validateDefaultValue(binding);
+    }
+
+    return valid ? bindings : null;
+  }
+
+  private boolean parseMethod(ExecutableElement method, Map<String, PreferenceBinding> bindings) {
+    AnnotationMirror annotation = getAnnotation(method, PREFERENCE_KEY);
+    if (annotation == null) {
+      error(method, "method of @PrefserPreferences interface has to be annotated with "
+          + "@PreferenceKey");
+      return false;
+    }
+    if (!method.getTypeParameters().isEmpty()) {
+      error(method, "@PreferenceKey method can't have type parameters");
+      return false;
+    }
+
+    PreferenceBinding.Method bindingMethod = createMethod(method);
+    if (bindingMethod == null) {
+      return false;
+    }
+
+    TypeMirror type = bindingMethod.type;
+    if (type.getKind().isPrimitive() && !isSupportedPrimitive(type.getKind())) {
+      error(method, "type " + type + " is not supported, use its wrapper class instead");
+      return false;
+    }
+    if (containsTypeVariable(type)) {
+      error(method, "type of the preference can't contain type variables");
+      return false;
+    }
+
+    String key = (String) getValue(annotation, "value");
+    if (key == null || key.isEmpty()) {
+      error(method, "key of the preference can't be empty");
+      return false;
+    }
+
+    PreferenceBinding binding = bindings.get(key);
+    if (binding == null) {
+      binding = new PreferenceBinding(key);
+      binding.boxedType = box(type);
+      bindings.put(key, binding);
+    } else if (!types.isSameType(binding.boxedType, box(type))) {
+      error(method, "preference \"" + key + "\" is already declared with type "
+          + binding.boxedType);
+      return false;
+    }
+
+    List<? extends AnnotationValue> defaultValues = getDefaultValues(annotation);
+    if (defaultValues.size() > 1) {
+      error(method, "preference \"" + key + "\" can have only one default value, but it has "
+          + defaultValues.size());
+      return false;
+    }
+
+    String defaultValue =
+        defaultValues.isEmpty() ? null : (String) defaultValues.get(0).getValue();
+    if (defaultValue != null) {
+      if (binding.defaultValue != null && !binding.defaultValue.equals(defaultValue)) {
+        error(method, "preference \"" + key + "\" is already declared with default value \""
+            + binding.defaultValue + "\"");
+        return false;
+      }
+      binding.defaultValue = defaultValue;
+    }
+
+    binding.methods.add(bindingMethod);
+    return true;
+  }
+
+  private PreferenceBinding.Method createMethod(ExecutableElement method) {
+    TypeMirror returnType = method.getReturnType();
+    List<? extends Element> parameters = method.getParameters();
+
+    if (parameters.isEmpty() && isPreference(returnType)) {
+      List<? extends TypeMirror> typeArguments = ((DeclaredType) returnType).getTypeArguments();
+      if (typeArguments.isEmpty() || typeArguments.get(0).getKind() == TypeKind.WILDCARD) {
+        error(method, "Preference returned by @PreferenceKey method has to declare its type");
+        return null;
+      }
+      return new PreferenceBinding.Method(method, PreferenceBinding.Kind.HANDLE,
+          typeArguments.get(0));
+    }
+
+    if (parameters.isEmpty() && returnType.getKind() != TypeKind.VOID) {
+      return new PreferenceBinding.Method(method, PreferenceBinding.Kind.GETTER, returnType);
+    }
+
+    if (parameters.size() == 1 && returnType.getKind() == TypeKind.VOID) {
+      return new PreferenceBinding.Method(method, PreferenceBinding.Kind.SETTER,
+          parameters.get(0).asType());
+    }
+
+    error(method, "@PreferenceKey method has to be a getter without parameters "
+        + "or a setter with one parameter and void return type");
+    return null;
+  }
+
+  private boolean validateDefaultValue(PreferenceBinding binding) {
+    String defaultValue = binding.defaultValue;
+    if (defaultValue == null || toLiteral(binding.boxedType, defaultValue) != null) {
+      return true;
+    }
+
+    error(binding.methods.get(0).element, "default value \"" + defaultValue
+        + "\" can't be used for preference of type " + binding.boxedType);
+    return false;
+  }
+
+  private void writeClass(TypeElement type, Map<String, PreferenceBinding> bindings) {
+    String packageName = getPackage(type).getQualifiedName().toString();
+    String className = getClassName(type) + SUFFIX;
+    assignFieldNames(bindings);
+
+    StringBuilder code = new StringBuilder();
+    code.append("// Generated code from Prefser. Do not modify!\n");
+    if (!packageName.isEmpty()) {
+      code.append("package ").append(packageName).append(";\n\n");
+    }
+    code.append("import ").append(PACKAGE).append(".Preference;\n");
+    code.append("import ").append(PACKAGE).append(".Prefser;\n");
+    if (usesTypeToken(bindings)) {
+      code.append("import ").append(PACKAGE).append(".TypeToken;\n");
+    }
+    code.append('\n');
+    code.append("public final class ").append(className)
+        .append(" implements ").append(type.getQualifiedName()).append(" {\n");
+    code.append("  private final Prefser prefser;\n");
+    for (PreferenceBinding binding : bindings.values()) {
+      if (binding.fieldName != null) {
+        code.append("  private final Preference<").append(binding.boxedType).append("> ")
+            .append(binding.fieldName).append(";\n");
+      }
+    }
+
+    code.append("\n  public ").append(className).append("(Prefser prefser) {\n");
+    code.append("    if (prefser == null) {\n");
+    code.append("      throw new NullPointerException(\"prefser == null\");\n");
+    code.append("    }\n");
+    code.append("    this.prefser = prefser;\n");
+    for (PreferenceBinding binding : bindings.values()) {
+      if (binding.fieldName != null) {
+        code.append("    this.").append(binding.fieldName).append(" = prefser.preference(")
+            .append(toStringLiteral(binding.key)).append(", ").append(typeOf(binding.boxedType))
+            .append(", ").append(getBoxedDefaultValue(binding)).append(");\n");
+      }
+    }
+    code.append("  }\n");
+
+    for (PreferenceBinding binding : bindings.values()) {
+      for (PreferenceBinding.Method method : binding.methods) {
+        code.append('\n');
+        writeMethod(code, binding, method);
+      }
+    }
+    code.append("}\n");
+
+    String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+    try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type)
+        .openWriter()) {
+      writer.write(code.toString());
+    } catch (IOException e) {
+      error(type, "can't write " + qualifiedName + ": " + e.getMessage());
+    }
+  }
+
+  private void writeMethod(StringBuilder code, PreferenceBinding binding,
+      PreferenceBinding.Method method) {
+    ExecutableElement element = method.element;
+    String name = element.getSimpleName().toString();
+    String key = toStringLiteral(binding.key);
+
+    switch (method.kind) {
+      case HANDLE:
+        code.append("  @Override public ").append(element.getReturnType()).append(' ')
+            .append(name).append("() {\n");
+        code.append("    return this.").append(binding.fieldName).append(";\n");
+        break;
+      case GETTER:
+        code.append("  @Override public ").append(method.type).append(' ')
+            .append(name).append("() {\n");
+        if (method.isPrimitive()) {
+          code.append("    return this.prefser.get").append(getPrimitiveName(method.type))
+              .append('(').append(key).append(", ")
+              .append(getPrimitiveDefaultValue(binding, method.type)).append(");\n");
+        } else {
+          code.append("    return this.").append(binding.fieldName).append(".get();\n");
+        }
+        break;
+      case SETTER:
+        String parameter = element.getParameters().get(0).getSimpleName().toString();
+        code.append("  @Override public void ").append(name).append('(')
+            .append(method.type).append(' ').append(parameter).append(") {\n");
+        if (method.isPrimitive()) {
+          code.append("    this.prefser.put").append(getPrimitiveName(method.type))
+              .append('(').append(key).append(", ").append(parameter).append(");\n");
+        } else {
+          code.append("    this.").append(binding.fieldName).append(".set(")
+              .append(parameter).append(");\n");
+        }
+        break;
+    }
+    code.append("  }\n");
+  }
+
+  private void assignFieldNames(Map<String, PreferenceBinding> bindings) {
+    Set<String> usedNames = new HashSet<>();
+    usedNames.add("prefser");
+
+    for (PreferenceBinding binding : bindings.values()) {
+      if (!binding.needsPreferenceField()) {
+        continue;
+      }
+
+      String name = toIdentifier(binding.key);
+      String uniqueName = name;
+      for (int i = 2; !usedNames.add(uniqueName); i++) {
+        uniqueName = name + i;
+      }
+      binding.fieldName = uniqueName;
+    }
+  }
+
+  private boolean usesTypeToken(Map<String, PreferenceBinding> bindings) {
+    for (PreferenceBinding binding : bindings.values()) {
+      if (binding.fieldName != null && isGeneric(binding.boxedType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isGeneric(TypeMirror type) {
+    return !types.isSameType(types.erasure(type), type);
+  }
+
+  private String typeOf(TypeMirror type) {
+    if (isGeneric(type)) {
+      return "new TypeToken<" + type + ">() {\n    }";
+    }
+    return types.erasure(type) + ".class";
+  }
+
+  private String getBoxedDefaultValue(PreferenceBinding binding) {
+    if (binding.defaultValue == null) {
+      return "null";
+    }
+    return toLiteral(binding.boxedType, binding.defaultValue);
+  }
+
+  private String getPrimitiveDefaultValue(PreferenceBinding binding, TypeMirror type) {
+    if (binding.defaultValue != null) {
+      return toLiteral(binding.boxedType, binding.defaultValue);
+    }
+
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return "false";
+      case LONG:
+        return "0L";
+      case FLOAT:
+        return "0f";
+      case DOUBLE:
+        return "0.0";
+      default:
+        return "0";
+    }
+  }
+
+  /**
+   * Converts default value to the Java literal of a given type.
+   *
+   * @return literal or null if value can't be used with a given type
+   */
+  private String toLiteral(TypeMirror boxedType, String value) {
+    String typeName = boxedType.toString();
+    try {
+      switch (typeName) {
+        case "java.lang.Boolean":
+          return value.equals("true") || value.equals("false") ? value : null;
+        case "java.lang.Integer":
+          return Integer.toString(Integer.parseInt(value));
+        case "java.lang.Long":
+          return Long.parseLong(value) + "L";
+        case "java.lang.Float":
+          float floatValue = Float.parseFloat(value);
+          return Float.isInfinite(floatValue) || Float.isNaN(floatValue) ? null
+              : floatValue + "f";
+        case "java.lang.Double":
+          double doubleValue = Double.parseDouble(value);
+          return Double.isInfinite(doubleValue) || Double.isNaN(doubleValue) ? null
+              : Double.toString(doubleValue);
+        case "java.lang.String":
+          return toStringLiteral(value);
+        default:
+          return null;
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private boolean isPreference(TypeMirror type) {
+    TypeElement preference = elements.getTypeElement(PREFERENCE);
+    return preference != null && type.getKind() == TypeKind.DECLARED
+        && types.isSameType(types.erasure(type), types.erasure(preference.asType()));
+  }
+
+  private boolean containsTypeVariable(TypeMirror type) {
+    if (type.getKind() == TypeKind.TYPEVAR) {
+      return true;
+    }
+    if (type.getKind() == TypeKind.ARRAY) {
+      return containsTypeVariable(((ArrayType) type).getComponentType());
+    }
+    if (type.getKind() == TypeKind.DECLARED) {
+      for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+        if (containsTypeVariable(argument)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private TypeMirror box(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return types.boxedClass((PrimitiveType) type).asType();
+    }
+    return type;
+  }
+
+  private void error(Element element, String message) {
+    messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private static boolean isSupportedPrimitive(TypeKind kind) {
+    return kind == TypeKind.BOOLEAN || kind == TypeKind.INT || kind == TypeKind.LONG
+        || kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE;
+  }
+
+  private static String getPrimitiveName(TypeMirror type) {
+    String name = type.getKind().name().toLowerCase();
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<? extends AnnotationValue> getDefaultValues(AnnotationMirror annotation) {
+    List<? extends AnnotationValue> values =
+        (List<? extends AnnotationValue>) getValue(annotation, "defaultValue");
+    return values != null ? values : Collections.<AnnotationValue>emptyList();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.compiler;
+
+import java.util.Map;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Helper methods shared by annotation processors.
+ */
+final class ProcessorUtils {
+  private ProcessorUtils() {
+  }
+
+  /**
+   * @return package, which contains a given element
+   */
+  static PackageElement getPackage(Element element) {
+    while (element.getKind() != ElementKind.PACKAGE) {
+      element = element.getEnclosingElement();
+    }
+    return (PackageElement) element;
+  }
+
+  /**
+   * @return simple name of a given type prefixed with names of its enclosing types
+   */
+  static String getClassName(TypeElement type) {
+    String name = type.getSimpleName().toString();
+    Element enclosing = type.getEnclosingElement();
+    if (enclosing.getKind() == ElementKind.PACKAGE) {
+      return name;
+    }
+    return getClassName((TypeElement) enclosing) + "_" + name;
+  }
+
+  /**
+   * @return annotation with a given name or null if element isn't annotated with it
+   */
+  static AnnotationMirror getAnnotation(Element element, String annotationName) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+      if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return value of the annotation element explicitly set in the code or null
+   */
+  static Object getValue(AnnotationMirror annotation, String name) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+        : annotation.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        return entry.getValue().getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return valid Java identifier created from a given String
+   */
+  static String toIdentifier(String key) {
+    StringBuilder identifier = new StringBuilder();
+    for (int i = 0; i < key.length(); i++) {
+      char character = key.charAt(i);
+      identifier.append(Character.isJavaIdentifierPart(character) ? character : '_');
+    }
+    if (!Character.isJavaIdentifierStart(identifier.charAt(0))) {
+      identifier.insert(0, '_');
+    }
+    String name = identifier.toString();
+    return SourceVersion.isKeyword(name) ? name + "_" : name;
+  }
+
+  /**
+   * @return Java String literal with a given value
+   */
+  static String toStringLiteral(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char character = value.charAt(i);
+      switch (character) {
+        case '"':
+          literal.append("\\\"");
+          break;
+        case '\\':
+          literal.append("\\\\");
+          break;
+        case '\n':
+          literal.append("\\n");
+          break;
+        case '\r':
+          literal.append("\\r");
+          break;
+        case '\t':
+          literal.append("\\t");
+          break;
+        default:
+          if (character < 0x20 || character > 0x7e) {
+            literal.append(String.format("\\u%04x", (int) character));
+          } else {
+            literal.append(character);
+          }
+      }
+    }
+    return literal.append('"').toString();
+  }
+}
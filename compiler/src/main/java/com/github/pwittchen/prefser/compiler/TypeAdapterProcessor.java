@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getAnnotation;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getClassName;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getPackage;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.getValue;
+import static com.github.pwittchen.prefser.compiler.ProcessorUtils.toStringLiteral;
+
+/**
+ * Generates Gson TypeAdapters of classes annotated with GenerateTypeAdapter.
+ * Generated class {@code <ClassName>_TypeAdapter} reads and writes fields directly
+ * in the same format as reflective adapter of Gson: it serializes all non-static
+ * and non-transient fields of the class and its superclasses and it respects SerializedName.
+ * Primitives and Strings are read and written without delegating to other adapters.
+ */
+public final class TypeAdapterProcessor extends AbstractProcessor {
+  private static final String GENERATE_TYPE_ADAPTER =
+      "com.github.pwittchen.prefser.library.rx2.GenerateTypeAdapter";
+  private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+  private static final String SUFFIX = "_TypeAdapter";
+
+  private Elements elements;
+  private Types types;
+  private Messager messager;
+
+  private static final class Field {
+    final VariableElement element;
+    final TypeMirror type;
+    final String name;
+    final List<String> jsonNames;
+    String adapterName; // name of the delegate adapter or null if it isn't needed
+
+    Field(VariableElement element, TypeMirror type, List<String> jsonNames) {
+      this.element = element;
+      this.type = type;
+      this.name = element.getSimpleName().toString();
+      this.jsonNames = jsonNames;
+    }
+  }
+
+  @Override public synchronized void init(ProcessingEnvironment processingEnvironment) {
+    super.init(processingEnvironment);
+    elements = processingEnvironment.getElementUtils();
+    types = processingEnvironment.getTypeUtils();
+    messager = processingEnvironment.getMessager();
+  }
+
+  @Override public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(GENERATE_TYPE_ADAPTER);
+  }
+
+  @Override public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment environment) {
+    TypeElement annotation = elements.getTypeElement(GENERATE_TYPE_ADAPTER);
+    if (annotation == null) {
+      return false;
+    }
+
+    for (Element element : environment.getElementsAnnotatedWith(annotation)) {
+      if (element.getKind() != ElementKind.CLASS) {
+        error(element, "@GenerateTypeAdapter can be used only with classes");
+        continue;
+      }
+
+      TypeElement type = (TypeElement) element;
+      List<Field> fields = parseClass(type);
+      if (fields != null) {
+        writeClass(type, fields);
+      }
+    }
+
+    return false;
+  }
+
+  private List<Field> parseClass(TypeElement type) {
+    boolean valid = true;
+    if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+      error(type, "@GenerateTypeAdapter class can't be abstract");
+      valid = false;
+    }
+    if (!type.getTypeParameters().isEmpty()) {
+      error(type, "@GenerateTypeAdapter class can't have type parameters");
+      valid = false;
+    }
+    if (type.getNestingKind() == NestingKind.MEMBER
+        && !type.getModifiers().contains(Modifier.STATIC)) {
+      error(type, "@GenerateTypeAdapter class can't be an inner class, make it static");
+      valid = false;
+    }
+    for (Element element = type; element.getKind() != ElementKind.PACKAGE;
+        element = element.getEnclosingElement()) {
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        error(type, "@GenerateTypeAdapter class can't be private or nested in private class");
+        valid = false;
+      }
+    }
+    if (!hasAccessibleConstructor(type)) {
+      error(type, "@GenerateTypeAdapter class needs non-private constructor without parameters");
+      valid = false;
+    }
+
+    List<Field> fields = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    Set<String> jsonNames = new HashSet<>();
+    DeclaredType declaredType = (DeclaredType) type.asType();
+    // fields of the class go before fields of superclasses like in Gson
+    for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+      for (VariableElement element : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+          continue;
+        }
+
+        TypeMirror fieldType = types.asMemberOf(declaredType, element);
+        Field field = new Field(element, fieldType, getJsonNames(element));
+        valid &= validateField(type, current, field, names, jsonNames);
+        fields.add(field);
+      }
+    }
+
+    return valid ? fields : null;
+  }
+
+  private boolean validateField(TypeElement type, TypeElement declaringType, Field field,
+      Set<String> names, Set<String> jsonNames) {
+    Set<Modifier> modifiers = field.element.getModifiers();
+    boolean samePackage = getPackage(type).equals(getPackage(declaringType));
+
+    if (modifiers.contains(Modifier.PRIVATE)) {
+      error(field.element, "field serialized by generated TypeAdapter can't be private");
+      return false;
+    }
+    if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+      error(type, "field " + field.name + " of " + declaringType.getQualifiedName()
+          + " has to be public to be serialized by generated TypeAdapter");
+      return false;
+    }
+    if (modifiers.contains(Modifier.FINAL)) {
+      error(field.element, "field serialized by generated TypeAdapter can't be final");
+      return false;
+    }
+    if (!names.add(field.name)) {
+      error(type, "class declares multiple fields named " + field.name);
+      return false;
+    }
+    for (String jsonName : field.jsonNames) {
+      if (!jsonNames.add(jsonName)) {
+        error(type, "class declares multiple JSON fields named " + jsonName);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void writeClass(TypeElement type, List<Field> fields) {
+    String packageName = getPackage(type).getQualifiedName().toString();
+    String className = getClassName(type) + SUFFIX;
+    String typeName = type.getQualifiedName().toString();
+    assignAdapterNames(fields);
+
+    StringBuilder code = new StringBuilder();
+    code.append("// Generated code from Prefser. Do not modify!\n");
+    if (!packageName.isEmpty()) {
+      code.append("package ").append(packageName).append(";\n\n");
+    }
+    code.append("import com.google.gson.Gson;\n");
+    code.append("import com.google.gson.TypeAdapter;\n");
+    code.append("import com.google.gson.stream.JsonReader;\n");
+    code.append("import com.google.gson.stream.JsonToken;\n");
+    code.append("import com.google.gson.stream.JsonWriter;\n");
+    code.append("import java.io.IOException;\n\n");
+    code.append("public final class ").append(className)
+        .append(" extends TypeAdapter<").append(typeName).append("> {\n");
+    for (Field field : fields) {
+      if (field.adapterName != null) {
+        code.append("  private final TypeAdapter<").append(box(field.type)).append("> ")
+            .append(field.adapterName).append(";\n");
+      }
+    }
+
+    code.append("\n  public ").append(className).append("(Gson gson) {\n");
+    for (Field field : fields) {
+      if (field.adapterName != null) {
+        code.append("    this.").append(field.adapterName).append(" = gson.getAdapter(")
+            .append(typeOf(box(field.type))).append(");\n");
+      }
+    }
+    code.append("  }\n\n");
+
+    writeWriteMethod(code, typeName, fields);
+    code.append('\n');
+    writeReadMethod(code, typeName, fields);
+    code.append("}\n");
+
+    String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+    try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type)
+        .openWriter()) {
+      writer.write(code.toString());
+    } catch (IOException e) {
+      error(type, "can't write " + qualifiedName + ": " + e.getMessage());
+    }
+  }
+
+  private void writeWriteMethod(StringBuilder code, String typeName, List<Field> fields) {
+    code.append("  @Override public void write(JsonWriter out, ").append(typeName)
+        .append(" value) throws IOException {\n");
+    code.append("    if (value == null) {\n");
+    code.append("      out.nullValue();\n");
+    code.append("      return;\n");
+    code.append("    }\n");
+    code.append("    out.beginObject();\n");
+    for (Field field : fields) {
+      code.append("    out.name(").append(toStringLiteral(field.jsonNames.get(0))).append(");\n");
+      if (field.adapterName != null) {
+        code.append("    this.").append(field.adapterName).append(".write(out, value.")
+            .append(field.name).append(");\n");
+      } else if (field.type.getKind() == TypeKind.FLOAT) {
+        // written as Float like in Gson, because widening to double changes its digits
+        code.append("    out.value((Number) value.").append(field.name).append(");\n");
+      } else {
+        code.append("    out.value(value.").append(field.name).append(");\n");
+      }
+    }
+    code.append("    out.endObject();\n");
+    code.append("  }\n");
+  }
+
+  private void writeReadMethod(StringBuilder code, String typeName, List<Field> fields) {
+    code.append("  @Override public ").append(typeName)
+        .append(" read(JsonReader in) throws IOException {\n");
+    code.append("    if (in.peek() == JsonToken.NULL) {\n");
+    code.append("      in.nextNull();\n");
+    code.append("      return null;\n");
+    code.append("    }\n");
+    code.append("    ").append(typeName).append(" value = new ").append(typeName).append("();\n");
+    code.append("    in.beginObject();\n");
+    code.append("    while (in.hasNext()) {\n");
+    code.append("      switch (in.nextName()) {\n");
+    for (Field field : fields) {
+      for (String jsonName : field.jsonNames) {
+        code.append("        case ").append(toStringLiteral(jsonName)).append(":\n");
+      }
+      writeReadField(code, field);
+      code.append("          break;\n");
+    }
+    code.append("        default:\n");
+    code.append("          in.skipValue();\n");
+    code.append("      }\n");
+    code.append("    }\n");
+    code.append("    in.endObject();\n");
+    code.append("    return value;\n");
+    code.append("  }\n");
+  }
+
+  private void writeReadField(StringBuilder code, Field field) {
+    String target = "value." + field.name;
+    if (field.adapterName != null && field.type.getKind().isPrimitive()) {
+      // null can't be assigned to primitive, so field keeps its default value like in Gson
+      String local = field.name + "Value";
+      code.append("          ").append(box(field.type)).append(' ').append(local)
+          .append(" = this.").append(field.adapterName).append(".read(in);\n");
+      code.append("          if (").append(local).append(" != null) {\n");
+      code.append("            ").append(target).append(" = ").append(local).append(";\n");
+      code.append("          }\n");
+      return;
+    }
+    if (field.adapterName != null) {
+      code.append("          ").append(target).append(" = this.").append(field.adapterName)
+          .append(".read(in);\n");
+      return;
+    }
+
+    code.append("          if (in.peek() == JsonToken.NULL) {\n");
+    code.append("            in.nextNull();\n");
+    if (!field.type.getKind().isPrimitive()) {
+      code.append("            ").append(target).append(" = null;\n");
+    }
+    code.append("          } else {\n");
+    code.append("            ").append(target).append(" = ").append(getReadExpression(field.type))
+        .append(";\n");
+    code.append("          }\n");
+  }
+
+  private static String getReadExpression(TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        // Gson reads booleans written as Strings too
+        return "in.peek() == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) "
+            + ": in.nextBoolean()";
+      case INT:
+        return "in.nextInt()";
+      case LONG:
+        return "in.nextLong()";
+      case FLOAT:
+        return "(float) in.nextDouble()";
+      case DOUBLE:
+        return "in.nextDouble()";
+      default:
+        // like TypeAdapters.STRING of Gson, which reads booleans and numbers as Strings too
+        return "in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) "
+            + ": in.nextString()";
+    }
+  }
+
+  private void assignAdapterNames(List<Field> fields) {
+    for (Field field : fields) {
+      if (!isReadDirectly(field.type)) {
+        field.adapterName = field.name + "Adapter";
+      }
+    }
+  }
+
+  private boolean isReadDirectly(TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      case DECLARED:
+        return types.isSameType(type, elements.getTypeElement("java.lang.String").asType());
+      default:
+        return false;
+    }
+  }
+
+  private String typeOf(TypeMirror type) {
+    TypeMirror erasure = types.erasure(type);
+    if (types.isSameType(erasure, type)) {
+      return erasure + ".class";
+    }
+    return "new com.google.gson.reflect.TypeToken<" + type + ">() {\n    }";
+  }
+
+  private TypeMirror box(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return types.boxedClass((PrimitiveType) type).asType();
+    }
+    return type;
+  }
+
+  private TypeElement getSuperclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    TypeElement element = (TypeElement) types.asElement(superclass);
+    return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+  }
+
+  private boolean hasAccessibleConstructor(TypeElement type) {
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty()
+          && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<String> getJsonNames(VariableElement field) {
+    List<String> names = new ArrayList<>();
+    AnnotationMirror serializedName = getAnnotation(field, SERIALIZED_NAME);
+    if (serializedName == null) {
+      names.add(field.getSimpleName().toString());
+      return names;
+    }
+
+    names.add((String) getValue(serializedName, "value"));
+    List<? extends AnnotationValue> alternates =
+        (List<? extends AnnotationValue>) getValue(serializedName, "alternate");
+    if (alternates != null) {
+      for (AnnotationValue alternate : alternates) {
+        names.add((String) alternate.getValue());
+      }
+    }
+    return names;
+  }
+
+  private void error(Element element, String message) {
+    messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+public final class PrefserProcessorTest {
+
+  private static Compilation compile(JavaFileObject source) {
+    return javac().withProcessors(new PrefserProcessor()).compile(source);
+  }
+
+  @Test public void testShouldGenerateImplementationOfInterface() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.AppPreferences",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.Preference;",
+        "import com.github.pwittchen.prefser.library.rx2.PreferenceKey;",
+        "import com.github.pwittchen.prefser.library.rx2.PrefserPreferences;",
+        "import java.util.List;",
+        "",
+        "@PrefserPreferences",
+        "public interface AppPreferences {",
+        "  @PreferenceKey(value = \"counter\", defaultValue = \"42\") int counter();",
+        "  @PreferenceKey(\"counter\") void counter(int value);",
+        "  @PreferenceKey(value = \"name\", defaultValue = \"John\") String name();",
+        "  @PreferenceKey(\"tags\") Preference<List<String>> tags();",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.AppPreferences_Prefser")
+        .contentsAsUtf8String()
+        .contains("return this.prefser.getInt(\"counter\", 42);");
+    assertThat(compilation).generatedSourceFile("test.AppPreferences_Prefser")
+        .contentsAsUtf8String()
+        .contains("this.prefser.putInt(\"counter\", value);");
+    assertThat(compilation).generatedSourceFile("test.AppPreferences_Prefser")
+        .contentsAsUtf8String()
+        .contains("prefser.preference(\"name\", java.lang.String.class, \"John\");");
+    assertThat(compilation).generatedSourceFile("test.AppPreferences_Prefser")
+        .contentsAsUtf8String()
+        .contains("new TypeToken<java.util.List<java.lang.String>>()");
+  }
+
+  @Test public void testShouldFailWhenDefaultValueDoesNotMatchType() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.AppPreferences",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.PreferenceKey;",
+        "import com.github.pwittchen.prefser.library.rx2.PrefserPreferences;",
+        "",
+        "@PrefserPreferences",
+        "public interface AppPreferences {",
+        "  @PreferenceKey(value = \"counter\", defaultValue = \"text\") int counter();",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "default value \"text\" can't be used for preference of type java.lang.Integer");
+  }
+
+  @Test public void testShouldFailWhenManyDefaultValuesAreSet() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.AppPreferences",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.PreferenceKey;",
+        "import com.github.pwittchen.prefser.library.rx2.PrefserPreferences;",
+        "",
+        "@PrefserPreferences",
+        "public interface AppPreferences {",
+        "  @PreferenceKey(value = \"counter\", defaultValue = {\"1\", \"2\"}) int counter();",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "preference \"counter\" can have only one default value, but it has 2");
+  }
+
+  @Test public void testShouldFailWhenKeyIsDeclaredWithDifferentTypes() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.AppPreferences",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.PreferenceKey;",
+        "import com.github.pwittchen.prefser.library.rx2.PrefserPreferences;",
+        "",
+        "@PrefserPreferences",
+        "public interface AppPreferences {",
+        "  @PreferenceKey(\"counter\") int counter();",
+        "  @PreferenceKey(\"counter\") void counter(String value);",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "preference \"counter\" is already declared with type java.lang.Integer");
+  }
+
+  @Test public void testShouldFailWhenMethodIsNotAnnotated() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.AppPreferences",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.PrefserPreferences;",
+        "",
+        "@PrefserPreferences",
+        "public interface AppPreferences {",
+        "  int counter();",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("has to be annotated with @PreferenceKey");
+  }
+
+  @Test public void testShouldFailWhenAnnotatedTypeIsNotInterface() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.AppPreferences",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.PrefserPreferences;",
+        "",
+        "@PrefserPreferences",
+        "public abstract class AppPreferences {",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "@PrefserPreferences can be used only with interfaces");
+  }
+}
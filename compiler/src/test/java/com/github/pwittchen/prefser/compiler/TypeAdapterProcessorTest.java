@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+public final class TypeAdapterProcessorTest {
+
+  private static Compilation compile(JavaFileObject source) {
+    return javac().withProcessors(new TypeAdapterProcessor()).compile(source);
+  }
+
+  @Test public void testShouldGenerateTypeAdapter() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.User",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.GenerateTypeAdapter;",
+        "import com.google.gson.annotations.SerializedName;",
+        "import java.util.List;",
+        "",
+        "@GenerateTypeAdapter",
+        "public class User {",
+        "  int age;",
+        "  @SerializedName(\"user_name\") String name;",
+        "  List<String> tags;",
+        "  transient int skipped;",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).succeeded();
+    assertThat(compilation).generatedSourceFile("test.User_TypeAdapter")
+        .contentsAsUtf8String()
+        .contains("value.age = in.nextInt();");
+    assertThat(compilation).generatedSourceFile("test.User_TypeAdapter")
+        .contentsAsUtf8String()
+        .contains("case \"user_name\":");
+    assertThat(compilation).generatedSourceFile("test.User_TypeAdapter")
+        .contentsAsUtf8String()
+        .contains("this.tagsAdapter.write(out, value.tags);");
+    assertThat(compilation).generatedSourceFile("test.User_TypeAdapter")
+        .contentsAsUtf8String()
+        .doesNotContain("skipped");
+  }
+
+  @Test public void testShouldFailWhenFieldIsPrivate() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.User",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.GenerateTypeAdapter;",
+        "",
+        "@GenerateTypeAdapter",
+        "public class User {",
+        "  private int age;",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "field serialized by generated TypeAdapter can't be private");
+  }
+
+  @Test public void testShouldFailWhenClassHasNoConstructorWithoutParameters() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.User",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.GenerateTypeAdapter;",
+        "",
+        "@GenerateTypeAdapter",
+        "public class User {",
+        "  int age;",
+        "",
+        "  User(int age) {",
+        "    this.age = age;",
+        "  }",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining(
+        "needs non-private constructor without parameters");
+  }
+
+  @Test public void testShouldFailWhenJsonNamesAreDuplicated() {
+    // given
+    JavaFileObject source = JavaFileObjects.forSourceLines("test.User",
+        "package test;",
+        "",
+        "import com.github.pwittchen.prefser.library.rx2.GenerateTypeAdapter;",
+        "import com.google.gson.annotations.SerializedName;",
+        "",
+        "@GenerateTypeAdapter",
+        "public class User {",
+        "  @SerializedName(\"name\") String firstName;",
+        "  String name;",
+        "}");
+
+    // when
+    Compilation compilation = compile(source);
+
+    // then
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorContaining("class declares multiple JSON fields named name");
+  }
+}
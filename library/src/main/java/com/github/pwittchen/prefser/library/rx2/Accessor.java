@@ -15,8 +15,10 @@
  */
 package com.github.pwittchen.prefser.library.rx2;
 
+import android.content.SharedPreferences;
+
 interface Accessor<T> {
   T get(String key, T defaultValue);
 
-  void put(String key, T value);
+  void put(SharedPreferences.Editor editor, String key, T value);
 }
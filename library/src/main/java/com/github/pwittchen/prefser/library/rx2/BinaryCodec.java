@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+/**
+ * Converts values of a given type to compact binary form and back.
+ * Codecs are registered per type in {@link PrefserSettings.Builder}
+ * and values of such types are stored as bytes instead of JSON.
+ *
+ * @param <T> type of the value
+ */
+public interface BinaryCodec<T> {
+  byte[] encode(T value);
+
+  T decode(byte[] bytes);
+}
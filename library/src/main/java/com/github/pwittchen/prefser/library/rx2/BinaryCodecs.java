@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Default binary codecs of primitive arrays and maps with String keys.
+ * Ints, longs and lengths are stored as variable-length zigzag numbers, so small values
+ * take one or two bytes. Floats and doubles are stored with a fixed size
+ * and Strings are stored as UTF-8 bytes. Like in GsonConverter, null values of maps are skipped.
+ */
+public final class BinaryCodecs {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  public static final BinaryCodec<byte[]> BYTE_ARRAY = new BinaryCodec<byte[]>() {
+    @Override public byte[] encode(byte[] value) {
+      return value;
+    }
+
+    @Override public byte[] decode(byte[] bytes) {
+      return bytes;
+    }
+  };
+
+  public static final BinaryCodec<boolean[]> BOOLEAN_ARRAY = new BinaryCodec<boolean[]>() {
+    @Override public byte[] encode(boolean[] value) {
+      byte[] bytes = new byte[value.length];
+      for (int i = 0; i < value.length; i++) {
+        bytes[i] = (byte) (value[i] ? 1 : 0);
+      }
+      return bytes;
+    }
+
+    @Override public boolean[] decode(byte[] bytes) {
+      boolean[] value = new boolean[bytes.length];
+      for (int i = 0; i < bytes.length; i++) {
+        value[i] = bytes[i] != 0;
+      }
+      return value;
+    }
+  };
+
+  public static final BinaryCodec<int[]> INT_ARRAY = new BinaryCodec<int[]>() {
+    @Override public byte[] encode(int[] value) {
+      Output output = new Output(value.length * 2 + 5);
+      output.writeVarLong(value.length);
+      for (int element : value) {
+        output.writeVarLong(element);
+      }
+      return output.toByteArray();
+    }
+
+    @Override public int[] decode(byte[] bytes) {
+      Input input = new Input(bytes);
+      int[] value = new int[(int) input.readVarLong()];
+      for (int i = 0; i < value.length; i++) {
+        value[i] = (int) input.readVarLong();
+      }
+      return value;
+    }
+  };
+
+  public static final BinaryCodec<long[]> LONG_ARRAY = new BinaryCodec<long[]>() {
+    @Override public byte[] encode(long[] value) {
+      Output output = new Output(value.length * 4 + 5);
+      output.writeVarLong(value.length);
+      for (long element : value) {
+        output.writeVarLong(element);
+      }
+      return output.toByteArray();
+    }
+
+    @Override public long[] decode(byte[] bytes) {
+      Input input = new Input(bytes);
+      long[] value = new long[(int) input.readVarLong()];
+      for (int i = 0; i < value.length; i++) {
+        value[i] = input.readVarLong();
+      }
+      return value;
+    }
+  };
+
+  public static final BinaryCodec<float[]> FLOAT_ARRAY = new BinaryCodec<float[]>() {
+    @Override public byte[] encode(float[] value) {
+      ByteBuffer buffer = ByteBuffer.allocate(value.length * 4);
+      buffer.asFloatBuffer().put(value);
+      return buffer.array();
+    }
+
+    @Override public float[] decode(byte[] bytes) {
+      float[] value = new float[bytes.length / 4];
+      ByteBuffer.wrap(bytes).asFloatBuffer().get(value);
+      return value;
+    }
+  };
+
+  public static final BinaryCodec<double[]> DOUBLE_ARRAY = new BinaryCodec<double[]>() {
+    @Override public byte[] encode(double[] value) {
+      ByteBuffer buffer = ByteBuffer.allocate(value.length * 8);
+      buffer.asDoubleBuffer().put(value);
+      return buffer.array();
+    }
+
+    @Override public double[] decode(byte[] bytes) {
+      double[] value = new double[bytes.length / 8];
+      ByteBuffer.wrap(bytes).asDoubleBuffer().get(value);
+      return value;
+    }
+  };
+
+  public static final BinaryCodec<Map<String, String>> STRING_MAP = new MapCodec<String>() {
+    @Override void writeValue(Output output, String value) {
+      output.writeString(value);
+    }
+
+    @Override String readValue(Input input) {
+      return input.readString();
+    }
+  };
+
+  public static final BinaryCodec<Map<String, Integer>> INT_MAP = new MapCodec<Integer>() {
+    @Override void writeValue(Output output, Integer value) {
+      output.writeVarLong(value);
+    }
+
+    @Override Integer readValue(Input input) {
+      return (int) input.readVarLong();
+    }
+  };
+
+  public static final BinaryCodec<Map<String, Long>> LONG_MAP = new MapCodec<Long>() {
+    @Override void writeValue(Output output, Long value) {
+      output.writeVarLong(value);
+    }
+
+    @Override Long readValue(Input input) {
+      return input.readVarLong();
+    }
+  };
+
+  public static final BinaryCodec<Map<String, Double>> DOUBLE_MAP = new MapCodec<Double>() {
+    @Override void writeValue(Output output, Double value) {
+      output.writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    @Override Double readValue(Input input) {
+      return Double.longBitsToDouble(input.readLong());
+    }
+  };
+
+  private BinaryCodecs() {
+  }
+
+  /**
+   * Stores number of entries followed by keys and values of not null entries.
+   *
+   * @param <V> type of values of the map
+   */
+  private abstract static class MapCodec<V> implements BinaryCodec<Map<String, V>> {
+    abstract void writeValue(Output output, V value);
+
+    abstract V readValue(Input input);
+
+    @Override public byte[] encode(Map<String, V> value) {
+      Output output = new Output(value.size() * 16 + 5);
+      output.writeVarLong(countNotNullValues(value));
+      for (Map.Entry<String, V> entry : value.entrySet()) {
+        if (entry.getValue() != null) {
+          output.writeString(entry.getKey());
+          writeValue(output, entry.getValue());
+        }
+      }
+      return output.toByteArray();
+    }
+
+    @Override public Map<String, V> decode(byte[] bytes) {
+      Input input = new Input(bytes);
+      int size = (int) input.readVarLong();
+      Map<String, V> value = new LinkedHashMap<>(size * 4 / 3 + 1);
+      for (int i = 0; i < size; i++) {
+        String key = input.readString();
+        value.put(key, readValue(input));
+      }
+      return value;
+    }
+
+    private int countNotNullValues(Map<String, V> value) {
+      int count = 0;
+      for (V entryValue : value.values()) {
+        if (entryValue != null) {
+          count++;
+        }
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Growable not synchronized byte buffer.
+   */
+  private static final class Output {
+    private byte[] bytes;
+    private int position;
+
+    private Output(int initialCapacity) {
+      this.bytes = new byte[initialCapacity];
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      long zigzag = (value << 1) ^ (value >> 63);
+      while ((zigzag & ~0x7fL) != 0) {
+        bytes[position++] = (byte) ((zigzag & 0x7f) | 0x80);
+        zigzag >>>= 7;
+      }
+      bytes[position++] = (byte) zigzag;
+    }
+
+    void writeLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        bytes[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeString(String value) {
+      byte[] stringBytes = value.getBytes(UTF_8);
+      writeVarLong(stringBytes.length);
+      ensureCapacity(stringBytes.length);
+      System.arraycopy(stringBytes, 0, bytes, position, stringBytes.length);
+      position += stringBytes.length;
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + length));
+      }
+    }
+
+    byte[] toByteArray() {
+      return position == bytes.length ? bytes : Arrays.copyOf(bytes, position);
+    }
+  }
+
+  /**
+   * Reads values written by {@link Output}.
+   */
+  private static final class Input {
+    private final byte[] bytes;
+    private int position;
+
+    private Input(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    long readVarLong() {
+      long zigzag = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = bytes[position++];
+        zigzag |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+      }
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    long readLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (bytes[position++] & 0xff);
+      }
+      return value;
+    }
+
+    String readString() {
+      int length = (int) readVarLong();
+      String value = new String(bytes, position, length, UTF_8);
+      position += length;
+      return value;
+    }
+  }
+}
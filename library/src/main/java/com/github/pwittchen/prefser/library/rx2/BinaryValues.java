@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.util.Arrays;
+
+/**
+ * Stores bytes produced by {@link BinaryCodec} as Strings, because SharedPreferences
+ * can't store byte arrays. Bytes are encoded with Base64 and prefixed with
+ * {@link #PREFIX}, which can't start a valid JSON, so values stored as JSON
+ * before a codec was registered are still recognized and read.
+ * Android's Base64 isn't used, so the same code runs on JVM (e.g. in benchmarks).
+ */
+final class BinaryValues {
+  static final String PREFIX = "#binary:";
+
+  private static final char[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  private static final int[] DECODING_TABLE = new int[128];
+
+  static {
+    Arrays.fill(DECODING_TABLE, -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      DECODING_TABLE[ALPHABET[i]] = i;
+    }
+  }
+
+  private BinaryValues() {
+  }
+
+  static boolean isBinary(String value) {
+    return value.startsWith(PREFIX);
+  }
+
+  static String encode(byte[] bytes) {
+    return encode(PREFIX, bytes);
+  }
+
+  static byte[] decode(String value) {
+    return decode(value, PREFIX.length());
+  }
+
+  /**
+   * Encodes bytes with Base64 and prefixes them with a given String.
+   */
+  static String encode(String prefix, byte[] bytes) {
+    int prefixLength = prefix.length();
+    char[] chars = new char[prefixLength + (bytes.length + 2) / 3 * 4];
+    prefix.getChars(0, prefixLength, chars, 0);
+    int position = prefixLength;
+    int i = 0;
+
+    for (; i + 2 < bytes.length; i += 3) {
+      int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+      chars[position++] = ALPHABET[bits >>> 18];
+      chars[position++] = ALPHABET[(bits >>> 12) & 0x3f];
+      chars[position++] = ALPHABET[(bits >>> 6) & 0x3f];
+      chars[position++] = ALPHABET[bits & 0x3f];
+    }
+
+    int remaining = bytes.length - i;
+    if (remaining > 0) {
+      int bits = (bytes[i] & 0xff) << 16 | (remaining == 2 ? (bytes[i + 1] & 0xff) << 8 : 0);
+      chars[position++] = ALPHABET[bits >>> 18];
+      chars[position++] = ALPHABET[(bits >>> 12) & 0x3f];
+      chars[position++] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3f] : '=';
+      chars[position] = '=';
+    }
+
+    return new String(chars);
+  }
+
+  /**
+   * Decodes bytes encoded with Base64, which start at a given index of the value.
+   */
+  static byte[] decode(String value, int start) {
+    int end = value.length();
+    if ((end - start) % 4 != 0) {
+      throw new IllegalArgumentException("invalid length of binary value");
+    }
+
+    int padding = 0;
+    if (end > start && value.charAt(end - 1) == '=') {
+      padding = value.charAt(end - 2) == '=' ? 2 : 1;
+    }
+
+    byte[] bytes = new byte[(end - start) / 4 * 3 - padding];
+    int position = 0;
+
+    for (int i = start; i < end; i += 4) {
+      int bits = decodeChar(value, i) << 18 | decodeChar(value, i + 1) << 12;
+      bytes[position++] = (byte) (bits >>> 16);
+      if (value.charAt(i + 2) == '=') {
+        break;
+      }
+      bits |= decodeChar(value, i + 2) << 6;
+      bytes[position++] = (byte) (bits >>> 8);
+      if (value.charAt(i + 3) == '=') {
+        break;
+      }
+      bits |= decodeChar(value, i + 3);
+      bytes[position++] = (byte) bits;
+    }
+
+    return bytes;
+  }
+
+  private static int decodeChar(String value, int index) {
+    char c = value.charAt(index);
+    int bits = c < DECODING_TABLE.length ? DECODING_TABLE[c] : -1;
+    if (bits < 0) {
+      throw new IllegalArgumentException("invalid character in binary value: " + c);
+    }
+    return bits;
+  }
+}
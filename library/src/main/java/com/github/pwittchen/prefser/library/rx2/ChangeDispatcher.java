@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single OnSharedPreferenceChangeListener shared by all observers of one Prefser object.
+ * Listeners of a specific key are indexed by that key,
+ * so a change of one key is dispatched only to listeners interested in it
+ * and to listeners of all keys.
+ * Listener is registered in SharedPreferences only while at least one listener is added.
+ * Each dispatched change gets the next version number, which is assigned to the changed key
+ * before listeners are notified, so listeners can tell, if they've already seen the change.
+ * Writes of Prefser get version numbers immediately too, because SharedPreferences
+ * can notify about them later.
+ */
+class ChangeDispatcher implements SharedPreferences.OnSharedPreferenceChangeListener {
+  private static final Listener[] NO_LISTENERS = new Listener[0];
+
+  private final SharedPreferences preferences;
+  private final Map<String, Listener[]> keyListeners = new ConcurrentHashMap<>();
+  private volatile Listener[] globalListeners = NO_LISTENERS;
+  private int listenersCount;
+  private final AtomicLong changeCount = new AtomicLong();
+  private final ConcurrentMap<String, Long> keyVersions = new ConcurrentHashMap<>();
+  private final AtomicLong clearVersion = new AtomicLong();
+  private boolean trackingVersions;
+
+  interface Listener {
+    void onChange(String key);
+  }
+
+  ChangeDispatcher(SharedPreferences preferences) {
+    Preconditions.checkNotNull(preferences, "preferences == null");
+    this.preferences = preferences;
+  }
+
+  synchronized void addListener(Listener listener) {
+    globalListeners = append(globalListeners, listener);
+    onListenerAdded();
+  }
+
+  synchronized void removeListener(Listener listener) {
+    Listener[] listeners = remove(globalListeners, listener);
+    if (listeners != globalListeners) {
+      globalListeners = listeners;
+      onListenerRemoved();
+    }
+  }
+
+  synchronized void addListener(String key, Listener listener) {
+    Listener[] listeners = keyListeners.get(key);
+    keyListeners.put(key, append(listeners == null ? NO_LISTENERS : listeners, listener));
+    onListenerAdded();
+  }
+
+  synchronized void removeListener(String key, Listener listener) {
+    Listener[] listeners = keyListeners.get(key);
+    if (listeners == null) {
+      return;
+    }
+
+    Listener[] remaining = remove(listeners, listener);
+    if (remaining == listeners) {
+      return;
+    }
+
+    if (remaining.length == 0) {
+      keyListeners.remove(key);
+    } else {
+      keyListeners.put(key, remaining);
+    }
+    onListenerRemoved();
+  }
+
+  /**
+   * Returns version of the last dispatched change of a given key.
+   * Versions of all keys are increasing and clearing preferences changes all of them.
+   *
+   * @param key key of the preference
+   * @return version of the last change of the key or 0 if no change was dispatched
+   */
+  long version(String key) {
+    Long version = keyVersions.get(key);
+    long cleared = clearVersion.get();
+    return version != null && version > cleared ? version : cleared;
+  }
+
+  /**
+   * @return version of the last change of any key or 0 if no change was dispatched
+   */
+  long globalVersion() {
+    return changeCount.get();
+  }
+
+  /**
+   * Registers listener in SharedPreferences permanently, so changes are counted
+   * even when no listener is added.
+   */
+  synchronized void trackVersions() {
+    if (!trackingVersions) {
+      trackingVersions = true;
+      onListenerAdded();
+    }
+  }
+
+  /**
+   * Assigns the next version to a key written by Prefser.
+   *
+   * @param key written key or null if all preferences were cleared
+   */
+  void onWrite(String key) {
+    long version = changeCount.incrementAndGet();
+    if (key == null) {
+      raiseClearVersion(version);
+    } else {
+      raiseKeyVersion(key, version);
+    }
+  }
+
+  /*
+   * Concurrent writers can store their versions in a different order than they got them,
+   * so a version is replaced only by a higher one and versions never decrease.
+   */
+
+  private void raiseKeyVersion(String key, long version) {
+    while (true) {
+      Long current = keyVersions.putIfAbsent(key, version);
+      if (current == null || current >= version || keyVersions.replace(key, current, version)) {
+        return;
+      }
+    }
+  }
+
+  private void raiseClearVersion(long version) {
+    long current = clearVersion.get();
+    while (current < version && !clearVersion.compareAndSet(current, version)) {
+      current = clearVersion.get();
+    }
+  }
+
+  @Override
+  public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+    onWrite(key);
+
+    for (Listener listener : globalListeners) {
+      listener.onChange(key);
+    }
+
+    if (key == null) { // all preferences were cleared
+      for (Map.Entry<String, Listener[]> entry : keyListeners.entrySet()) {
+        dispatch(entry.getValue(), entry.getKey());
+      }
+      return;
+    }
+
+    Listener[] listeners = keyListeners.get(key);
+    if (listeners != null) {
+      dispatch(listeners, key);
+    }
+  }
+
+  private static void dispatch(Listener[] listeners, String key) {
+    for (Listener listener : listeners) {
+      listener.onChange(key);
+    }
+  }
+
+  private void onListenerAdded() {
+    if (listenersCount++ == 0) {
+      preferences.registerOnSharedPreferenceChangeListener(this);
+    }
+  }
+
+  private void onListenerRemoved() {
+    if (--listenersCount == 0) {
+      preferences.unregisterOnSharedPreferenceChangeListener(this);
+    }
+  }
+
+  private static Listener[] append(Listener[] listeners, Listener listener) {
+    Listener[] result = new Listener[listeners.length + 1];
+    System.arraycopy(listeners, 0, result, 0, listeners.length);
+    result[listeners.length] = listener;
+    return result;
+  }
+
+  private static Listener[] remove(Listener[] listeners, Listener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        Listener[] result = new Listener[listeners.length - 1];
+        System.arraycopy(listeners, 0, result, 0, i);
+        System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+        return result;
+      }
+    }
+    return listeners;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Splits long stored values into chunks stored under derived keys.
+ * Value's own key keeps a small header with number of chunks, length, hash code
+ * and SHA-256 digest of the whole value followed by a generation, which increases
+ * with every write, so the header changes whenever the value is written and observers
+ * are notified.
+ * Only chunks, which are different from the stored ones, are written again.
+ * Header starts with {@link #HEADER_PREFIX}, which can't start a valid JSON, binary
+ * or compressed value, so chunked values are recognized while reading regardless
+ * of the settings. Chunk keys are hidden from {@link Prefser#size()}
+ * and {@link Prefser#observePreferences()}.
+ */
+final class ChunkedValues {
+  static final String HEADER_PREFIX = "#chunks:";
+  static final String CHUNK_KEY_SEPARATOR = "#prefser.chunk.";
+
+  private ChunkedValues() {
+  }
+
+  static boolean isHeader(String value) {
+    return value.startsWith(HEADER_PREFIX);
+  }
+
+  static boolean isChunkKey(String key) {
+    return key.contains(CHUNK_KEY_SEPARATOR);
+  }
+
+  static String chunkKey(String key, int index) {
+    return key + CHUNK_KEY_SEPARATOR + index;
+  }
+
+  static String baseKey(String chunkKey) {
+    return chunkKey.substring(0, chunkKey.lastIndexOf(CHUNK_KEY_SEPARATOR));
+  }
+
+  /**
+   * Writes value split into chunks, which aren't longer than a given size.
+   * Chunks left from a previous longer value are removed. All chunks are written,
+   * when the editor overwrites stored chunks (e.g. it clears preferences or removes the key),
+   * because comparing with stored chunks would skip chunks, which won't be kept.
+   */
+  static void write(SharedPreferences preferences, SharedPreferences.Editor editor, String key,
+      String value, int chunkSize, boolean overwrite) {
+    int count = 0;
+    int start = 0;
+    while (start < value.length()) {
+      int end = chunkEnd(value, start, chunkSize);
+      String chunk = value.substring(start, end);
+      String chunkKey = chunkKey(key, count++);
+      if (overwrite || !chunk.equals(preferences.getString(chunkKey, null))) {
+        editor.putString(chunkKey, chunk);
+      }
+      start = end;
+    }
+
+    editor.putString(key, createHeader(value, count) + ':' + nextGeneration(preferences, key));
+    removeChunks(preferences, editor, key, count);
+  }
+
+  /**
+   * Checks if a given header describes a value split into chunks of a given size,
+   * so the value can be compared with the stored one without reading its chunks.
+   */
+  static boolean isHeaderOf(String header, String value, int chunkSize) {
+    int count = 0;
+    for (int start = 0; start < value.length(); start = chunkEnd(value, start, chunkSize)) {
+      count++;
+    }
+    return header.startsWith(createHeader(value, count) + ':');
+  }
+
+  /**
+   * Checks if stored values are the same. Headers are compared without their generations,
+   * so writing the same chunked value again doesn't make it different.
+   */
+  static boolean isSameValue(String value, String otherValue) {
+    if (isHeader(value) && isHeader(otherValue)) {
+      return value.substring(0, value.lastIndexOf(':'))
+          .equals(otherValue.substring(0, otherValue.lastIndexOf(':')));
+    }
+    return value.equals(otherValue);
+  }
+
+  private static String createHeader(String value, int count) {
+    return HEADER_PREFIX + count + ':' + value.length() + ':' + value.hashCode() + ':'
+        + digest(value);
+  }
+
+  /**
+   * Computes SHA-256 digest of all chars of a given value, so values with the same
+   * header are the same, unlike values with the same String#hashCode().
+   * Chars are digested directly, so even unpaired surrogates aren't lost by encoding them.
+   */
+  private static String digest(String value) {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+
+    byte[] buffer = new byte[Math.min(value.length(), 4096) * 2];
+    for (int start = 0; start < value.length(); ) {
+      int end = Math.min(start + buffer.length / 2, value.length());
+      for (int i = start; i < end; i++) {
+        char c = value.charAt(i);
+        buffer[(i - start) * 2] = (byte) (c >> 8);
+        buffer[(i - start) * 2 + 1] = (byte) c;
+      }
+      messageDigest.update(buffer, 0, (end - start) * 2);
+      start = end;
+    }
+
+    StringBuilder builder = new StringBuilder();
+    for (byte b : messageDigest.digest()) {
+      builder.append(Character.forDigit((b >> 4) & 0xF, 16))
+          .append(Character.forDigit(b & 0xF, 16));
+    }
+    return builder.toString();
+  }
+
+  private static long nextGeneration(SharedPreferences preferences, String key) {
+    try {
+      String header = preferences.getString(key, null);
+      if (header == null || !isHeader(header)) {
+        return 0;
+      }
+      return Long.parseLong(header.substring(header.lastIndexOf(':') + 1)) + 1;
+    } catch (ClassCastException | NumberFormatException e) {
+      return 0; // key stored a value of other type or a damaged header
+    }
+  }
+
+  private static int chunkEnd(String value, int start, int chunkSize) {
+    int end = Math.min(start + chunkSize, value.length());
+    if (end < value.length() && Character.isHighSurrogate(value.charAt(end - 1))) {
+      end--; // surrogate pair isn't split, because single surrogate can't be stored in XML
+    }
+    return end;
+  }
+
+  /**
+   * Reads value from chunks described by a given header.
+   * Header and chunks are read separately, so a value written at the same time can change
+   * some of them. Header changes with every write, so it's read again after the chunks
+   * and null is returned, when it changed, so the new value should be read again.
+   * Exception is thrown only when the header doesn't change and chunks still don't match it.
+   * Chunks are checked with length and String#hashCode() of the value, which are enough
+   * to notice chunks of other write, so SHA-256 digest is computed only while writing.
+   *
+   * @return value or null if it was written again while its chunks were read
+   */
+  static String read(SharedPreferences preferences, String key, String header) {
+    String[] fields = header.substring(HEADER_PREFIX.length()).split(":");
+    if (fields.length != 5) {
+      throw new IllegalArgumentException("invalid header of chunked value: " + header);
+    }
+
+    int count = Integer.parseInt(fields[0]);
+    int length = Integer.parseInt(fields[1]);
+    int hashCode = Integer.parseInt(fields[2]);
+    String value = readChunks(preferences, key, count, length);
+    if (value.length() == length && value.hashCode() == hashCode) {
+      return value;
+    }
+
+    // MapPreferences and WriteBehindPreferences aren't locked while reading, but they apply
+    // changes of an editor while holding their lock, so it's read again after a write in progress
+    synchronized (preferences) {
+      if (!header.equals(preferences.getString(key, null))) {
+        return null;
+      }
+      value = readChunks(preferences, key, count, length);
+    }
+
+    if (value.length() != length || value.hashCode() != hashCode) {
+      throw new IllegalArgumentException("chunks don't match header of value: " + key);
+    }
+    return value;
+  }
+
+  private static String readChunks(SharedPreferences preferences, String key, int count,
+      int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < count; i++) {
+      String chunk = preferences.getString(chunkKey(key, i), null);
+      if (chunk == null) {
+        // missing chunk makes the value shorter, so it doesn't match the header
+        return builder.toString();
+      }
+      builder.append(chunk);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Removes chunks of a given key starting from a given index.
+   */
+  static void removeChunks(SharedPreferences preferences, SharedPreferences.Editor editor,
+      String key, int fromIndex) {
+    for (int i = fromIndex; ; i++) {
+      String chunkKey = chunkKey(key, i);
+      if (!preferences.contains(chunkKey)) {
+        return;
+      }
+      editor.remove(chunkKey);
+    }
+  }
+}
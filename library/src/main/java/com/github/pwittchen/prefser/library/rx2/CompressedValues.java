@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses long stored values with Deflater. Compressed value contains length
+ * of the original UTF-8 bytes followed by deflated bytes. It's encoded with Base64
+ * and prefixed with {@link #PREFIX}, which can't start a valid JSON or a binary value,
+ * so compressed values are recognized while reading regardless of the settings.
+ */
+final class CompressedValues {
+  static final String PREFIX = "#deflate:";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private CompressedValues() {
+  }
+
+  static boolean isCompressed(String value) {
+    return value.startsWith(PREFIX);
+  }
+
+  static String compress(String value) {
+    byte[] bytes = value.getBytes(UTF_8);
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      byte[] output = new byte[4 + bytes.length / 2 + 64];
+      ByteBuffer.wrap(output).putInt(bytes.length);
+      int length = 4;
+      while (!deflater.finished()) {
+        if (length == output.length) {
+          output = Arrays.copyOf(output, output.length * 2);
+        }
+        length += deflater.deflate(output, length, output.length - length);
+      }
+      return BinaryValues.encode(PREFIX, Arrays.copyOf(output, length));
+    } finally {
+      deflater.end();
+    }
+  }
+
+  static String decompress(String value) {
+    byte[] input = BinaryValues.decode(value, PREFIX.length());
+    int originalLength = input.length >= 4 ? ByteBuffer.wrap(input).getInt() : -1;
+    // Deflater can't compress data more than 1032 times, so larger length is corrupted
+    if (originalLength < 0 || originalLength > (input.length - 4) * 1032L) {
+      throw new IllegalArgumentException("invalid compressed value");
+    }
+    // one spare byte detects values longer than declared
+    byte[] bytes = new byte[originalLength + 1];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(input, 4, input.length - 4);
+      int length = 0;
+      while (!inflater.finished() && length < bytes.length) {
+        int inflated = inflater.inflate(bytes, length, bytes.length - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (!inflater.finished() || length != originalLength) {
+        throw new IllegalArgumentException("invalid compressed value");
+      }
+      return new String(bytes, 0, length, UTF_8);
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("invalid compressed value", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
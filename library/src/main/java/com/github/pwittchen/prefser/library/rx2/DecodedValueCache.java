@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of objects decoded from JSON keyed by preference key and type.
+ * Each entry remembers JSON it was decoded from, so entry is used only
+ * when stored JSON is still the same, even if an invalidation was missed.
+ */
+class DecodedValueCache {
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked") <T> T get(String key, Type type, String json) {
+    Entry entry = entries.get(key);
+    if (entry == null || !entry.type.equals(type) || !entry.json.equals(json)) {
+      return null;
+    }
+    return (T) entry.value;
+  }
+
+  void put(String key, Type type, String json, Object value) {
+    if (value == null) {
+      return;
+    }
+    entries.put(key, new Entry(type, json, value));
+  }
+
+  void invalidate(String key) {
+    if (key == null) {
+      invalidateAll();
+      return;
+    }
+    entries.remove(key);
+  }
+
+  void invalidateAll() {
+    entries.clear();
+  }
+
+  private static final class Entry {
+    private final Type type;
+    private final String json;
+    private final Object value;
+
+    private Entry(Type type, String json, Object value) {
+      this.type = type;
+      this.json = json;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+
+/**
+ * Accessor of double values, which are not supported by SharedPreferences directly.
+ * Doubles can be stored as Strings (default, readable by other SharedPreferences clients)
+ * or as raw long bits, which don't need allocation of a String and parsing while reading.
+ * Both formats are always readable, so values stored as Strings are migrated
+ * to long bits when they're written again.
+ */
+class DoubleAccessor implements Accessor<Double> {
+  private final SharedPreferences preferences;
+  private final boolean storeAsLongBits;
+
+  DoubleAccessor(SharedPreferences preferences, boolean storeAsLongBits) {
+    Preconditions.checkNotNull(preferences, "preferences == null");
+    this.preferences = preferences;
+    this.storeAsLongBits = storeAsLongBits;
+  }
+
+  @Override public Double get(String key, Double defaultValue) {
+    if (defaultValue == null && !preferences.contains(key)) {
+      return null;
+    }
+    return getDouble(key, defaultValue == null ? 0.0 : defaultValue);
+  }
+
+  @Override public void put(SharedPreferences.Editor editor, String key, Double value) {
+    putDouble(editor, key, value);
+  }
+
+  double getDouble(String key, double defaultValue) {
+    // format, which is written by this accessor is read first,
+    // so reading a value in the other format is the only case, which throws an exception
+    if (storeAsLongBits) {
+      try {
+        return readLongBits(key, defaultValue);
+      } catch (ClassCastException e) {
+        return readString(key, defaultValue);
+      }
+    }
+
+    try {
+      return readString(key, defaultValue);
+    } catch (ClassCastException e) {
+      return readLongBits(key, defaultValue);
+    }
+  }
+
+  void putDouble(SharedPreferences.Editor editor, String key, double value) {
+    if (storeAsLongBits) {
+      editor.putLong(key, Double.doubleToRawLongBits(value));
+    } else {
+      editor.putString(key, String.valueOf(value));
+    }
+  }
+
+  private double readLongBits(String key, double defaultValue) {
+    long defaultBits = Double.doubleToRawLongBits(defaultValue);
+    return Double.longBitsToDouble(preferences.getLong(key, defaultBits));
+  }
+
+  private double readString(String key, double defaultValue) {
+    String value = preferences.getString(key, null);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+}
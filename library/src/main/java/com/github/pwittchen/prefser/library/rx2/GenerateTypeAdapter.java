@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class, for which annotation processor from prefser-compiler generates
+ * Gson TypeAdapter named {@code <ClassName>_TypeAdapter}. Generated adapter reads and writes
+ * fields directly instead of using reflection, so all serialized (non-static and non-transient)
+ * fields can't be private or final and class needs a non-private constructor
+ * without parameters. Names from {@code @SerializedName} annotation are respected.
+ * <p/>
+ * Generated adapters are used by Gson created with {@link GeneratedTypeAdapterFactory},
+ * e.g. by {@link GsonConverter#withGeneratedTypeAdapters()}.
+ */
+@Documented @Retention(RetentionPolicy.RUNTIME) @Target(ElementType.TYPE)
+public @interface GenerateTypeAdapter {
+}
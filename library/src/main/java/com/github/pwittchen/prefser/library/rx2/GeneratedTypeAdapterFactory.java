@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gson TypeAdapterFactory, which creates TypeAdapters generated for classes annotated with
+ * {@link GenerateTypeAdapter}. Generated class is looked up only once for each annotated class,
+ * other classes are handled by next factories of Gson.
+ * <pre>
+ *  Gson gson = new GsonBuilder()
+ *    .registerTypeAdapterFactory(new GeneratedTypeAdapterFactory())
+ *    .create();
+ * </pre>
+ */
+public final class GeneratedTypeAdapterFactory implements TypeAdapterFactory {
+  private static final String SUFFIX = "_TypeAdapter";
+
+  private final Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked") @Override
+  public <T> TypeAdapter<T> create(Gson gson, com.google.gson.reflect.TypeToken<T> type) {
+    Class<? super T> rawType = type.getRawType();
+    if (!rawType.isAnnotationPresent(GenerateTypeAdapter.class)) {
+      return null;
+    }
+
+    try {
+      return (TypeAdapter<T>) getConstructor(rawType).newInstance(gson);
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("can't create TypeAdapter of " + rawType.getName(), e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("can't create TypeAdapter of " + rawType.getName(),
+          e.getCause());
+    }
+  }
+
+  private Constructor<?> getConstructor(Class<?> type) {
+    Constructor<?> constructor = constructors.get(type);
+    if (constructor != null) {
+      return constructor;
+    }
+
+    String className = getAdapterClassName(type);
+    try {
+      Class<?> adapterClass = Class.forName(className, true, type.getClassLoader());
+      constructor = adapterClass.getConstructor(Gson.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      throw new IllegalStateException(className + " wasn't generated, "
+          + "add prefser-compiler to annotation processors", e);
+    }
+    constructors.put(type, constructor);
+    return constructor;
+  }
+
+  private static String getAdapterClassName(Class<?> type) {
+    // nested classes Outer$Inner have adapters named Outer_Inner_TypeAdapter
+    return type.getName().replace('$', '_') + SUFFIX;
+  }
+}
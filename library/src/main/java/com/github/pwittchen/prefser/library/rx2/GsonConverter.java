@@ -17,9 +17,14 @@ package com.github.pwittchen.prefser.library.rx2;
 
 import androidx.annotation.NonNull;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
 
-public final class GsonConverter implements JsonConverter {
+public final class GsonConverter implements StreamingJsonConverter {
 
   private final Gson gson;
 
@@ -31,6 +36,18 @@ public final class GsonConverter implements JsonConverter {
     gson = new Gson();
   }
 
+  /**
+   * Creates converter, which uses TypeAdapters generated for classes annotated with
+   * {@link GenerateTypeAdapter} instead of reflection.
+   *
+   * @return GsonConverter with generated TypeAdapters
+   */
+  public static GsonConverter withGeneratedTypeAdapters() {
+    return new GsonConverter(new GsonBuilder()
+        .registerTypeAdapterFactory(new GeneratedTypeAdapterFactory())
+        .create());
+  }
+
   @Override public <T> T fromJson(String json, Type typeOfT) {
     return gson.fromJson(json, typeOfT);
   }
@@ -38,4 +55,14 @@ public final class GsonConverter implements JsonConverter {
   @Override public <T> String toJson(T object, Type typeOfT) {
     return gson.toJson(object, typeOfT);
   }
+
+  @Override public <T> void toJson(T object, Type typeOfT, Writer writer) {
+    try {
+      JsonWriter jsonWriter = gson.newJsonWriter(writer);
+      gson.toJson(object, typeOfT, jsonWriter);
+      jsonWriter.flush();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
 }
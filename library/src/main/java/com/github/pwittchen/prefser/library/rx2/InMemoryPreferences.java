@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Implementation of SharedPreferences, which keeps values only in memory.
+ * It can be wrapped by Prefser in the same way as SharedPreferences from Android Context,
+ * e.g. to store volatile session state without writing it to the disk:
+ * <pre>
+ *  Prefser prefser = new Prefser(new InMemoryPreferences());
+ * </pre>
+ * Values are read without locking. Changes of one Editor are applied atomically
+ * and they're visible immediately after apply() or commit().
+ * Like SharedPreferences from Android, it notifies listeners only about changed values
+ * and it keeps weak references to listeners, but listeners are notified
+ * on the thread, which applied changes.
+ */
+public final class InMemoryPreferences extends MapPreferences {
+  @Override Future<?> persist(Map<String, Object> modified, boolean clear) {
+    return null; // values are kept only in memory
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reusable per thread buffer, to which StreamingJsonConverter writes JSON.
+ * Buffer keeps its capacity between writes, so serializing large values
+ * doesn't grow and copy a new buffer every time.
+ * Buffers larger than {@link #MAX_RETAINED_CAPACITY} aren't kept per thread.
+ * One of them, which isn't larger than {@link #MAX_SHARED_CAPACITY}, is shared
+ * by all threads instead, so large values are written without growing a new buffer too,
+ * but every thread doesn't keep memory of the largest value it wrote.
+ */
+class JsonBuffer {
+  static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+  static final int MAX_SHARED_CAPACITY = 512 * 1024;
+
+  private final AtomicReference<StringBuilderWriter> sharedWriter = new AtomicReference<>();
+
+  private final ThreadLocal<StringBuilderWriter> writers = new ThreadLocal<StringBuilderWriter>() {
+    @Override protected StringBuilderWriter initialValue() {
+      return new StringBuilderWriter();
+    }
+  };
+
+  <T> String toJson(StreamingJsonConverter converter, T value, Type typeOfT) {
+    StringBuilderWriter writer = sharedWriter.getAndSet(null);
+    boolean shared = writer != null;
+    if (!shared) {
+      writer = writers.get();
+    }
+
+    try {
+      converter.toJson(value, typeOfT, writer);
+      return writer.toString();
+    } finally {
+      writer.reset();
+      if (writer.capacity() > MAX_RETAINED_CAPACITY) {
+        if (!shared) {
+          writers.remove();
+        }
+        if (writer.capacity() <= MAX_SHARED_CAPACITY) {
+          sharedWriter.compareAndSet(null, writer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writer backed by not synchronized StringBuilder.
+   */
+  static final class StringBuilderWriter extends Writer {
+    private final StringBuilder builder = new StringBuilder(256);
+
+    @Override public void write(int c) {
+      builder.append((char) c);
+    }
+
+    @Override public void write(char[] buffer, int offset, int length) {
+      builder.append(buffer, offset, length);
+    }
+
+    @Override public void write(String string, int offset, int length) {
+      builder.append(string, offset, offset + length);
+    }
+
+    @Override public Writer append(CharSequence sequence) {
+      builder.append(sequence);
+      return this;
+    }
+
+    @Override public Writer append(CharSequence sequence, int start, int end) {
+      builder.append(sequence, start, end);
+      return this;
+    }
+
+    @Override public Writer append(char c) {
+      builder.append(c);
+      return this;
+    }
+
+    @Override public void flush() {
+    }
+
+    @Override public void close() {
+    }
+
+    int capacity() {
+      return builder.capacity();
+    }
+
+    void reset() {
+      builder.setLength(0);
+    }
+
+    @Override public String toString() {
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Set of keys stored in SharedPreferences, which allows to read their number
+ * without copying all preferences with SharedPreferences#getAll().
+ * Keys are read once, when the index is used for the first time,
+ * and then they're kept in sync by writes of Prefser and by the shared change listener.
+ * Keys of chunks of long values aren't counted, but keys of values, which may have chunks,
+ * are kept separately, so stale chunks are looked for only when such key is overwritten.
+ * Note: SharedPreferences doesn't notify listeners about Editor#clear() before Android 11,
+ * so clearing preferences outside of Prefser isn't visible for the index on older devices.
+ */
+class KeyIndex implements ChangeDispatcher.Listener {
+  private final SharedPreferences preferences;
+  private final ChangeDispatcher changeDispatcher;
+  private final Set<String> chunkedKeys = new HashSet<>();
+  private Set<String> keys;
+  private boolean listening;
+
+  KeyIndex(SharedPreferences preferences, ChangeDispatcher changeDispatcher) {
+    Preconditions.checkNotNull(preferences, "preferences == null");
+    Preconditions.checkNotNull(changeDispatcher, "changeDispatcher == null");
+    this.preferences = preferences;
+    this.changeDispatcher = changeDispatcher;
+  }
+
+  synchronized int size() {
+    return getKeys().size();
+  }
+
+  synchronized boolean isEmpty() {
+    return getKeys().isEmpty();
+  }
+
+  synchronized boolean hasChunks(String key) {
+    getKeys();
+    return chunkedKeys.contains(key);
+  }
+
+  synchronized void onChunksWritten(String key) {
+    getKeys();
+    chunkedKeys.add(key);
+  }
+
+  synchronized void onChunksRemoved(String key) {
+    chunkedKeys.remove(key);
+  }
+
+  @Override public synchronized void onChange(String key) {
+    if (keys == null) {
+      return;
+    }
+
+    if (key == null) { // all preferences were cleared, keys will be read again
+      keys = null;
+      return;
+    }
+
+    refresh(key);
+  }
+
+  synchronized void onWrite(String key) {
+    if (keys != null) {
+      refresh(key);
+    }
+  }
+
+  synchronized void onWrite(Collection<String> changedKeys, boolean cleared) {
+    if (keys == null) {
+      return;
+    }
+
+    if (cleared) {
+      keys.clear();
+    }
+
+    for (String key : changedKeys) {
+      refresh(key);
+    }
+  }
+
+  synchronized void onClear() {
+    if (keys != null) {
+      keys.clear();
+    }
+  }
+
+  private void refresh(String key) {
+    if (ChunkedValues.isChunkKey(key)) { // removed chunks are forgotten by Prefser
+      if (preferences.contains(key)) {
+        chunkedKeys.add(ChunkedValues.baseKey(key));
+      }
+      return;
+    }
+
+    if (preferences.contains(key)) {
+      keys.add(key);
+    } else {
+      keys.remove(key);
+    }
+  }
+
+  private Set<String> getKeys() {
+    if (keys == null) {
+      if (!listening) { // listener is added first, so no change is missed while reading keys
+        changeDispatcher.addListener(this);
+        listening = true;
+      }
+      keys = new HashSet<>();
+      chunkedKeys.clear();
+      for (String key : preferences.getAll().keySet()) {
+        if (ChunkedValues.isChunkKey(key)) {
+          chunkedKeys.add(ChunkedValues.baseKey(key));
+        } else {
+          keys.add(key);
+        }
+      }
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import androidx.annotation.NonNull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation of SharedPreferences, which appends changes to a log file
+ * instead of rewriting all values like SharedPreferences from Android.
+ * Cost of writing a change is proportional to the size of the change, not to the size of the file.
+ * <p/>
+ * Changes of every Editor are appended to the file as a single frame
+ * with a checksum, so changes interrupted by a crash are discarded while opening the file.
+ * All values are read from the file, when it's opened and then they're kept in memory.
+ * When the file contains more overwritten records than live values
+ * and their number exceeds compaction threshold, file is rewritten in the background
+ * with live values only.
+ * <p/>
+ * apply() writes changes in the background thread, commit() waits until they're written
+ * and flushed to the disk. Listeners are notified on the thread, which applied changes.
+ * <pre>
+ *  LogStructuredPreferences preferences =
+ *    LogStructuredPreferences.open(new File(context.getFilesDir(), "preferences.log"));
+ *  Prefser prefser = new Prefser(preferences);
+ * </pre>
+ */
+public final class LogStructuredPreferences extends MapPreferences implements Closeable {
+  /**
+   * Default minimal number of overwritten records, which triggers compaction of the file.
+   */
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int FRAME_HEADER_SIZE = 8; // payload length and checksum
+
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_INT = 2;
+  private static final byte TYPE_LONG = 3;
+  private static final byte TYPE_FLOAT = 4;
+  private static final byte TYPE_STRING = 5;
+  private static final byte TYPE_STRING_SET = 6;
+  private static final byte TYPE_REMOVED = 7;
+  private static final byte TYPE_CLEAR = 8;
+
+  private final File file;
+  private final int compactionThreshold;
+  private final ExecutorService executor;
+  private boolean closed; // guarded by this, which is held while changes are applied
+  // accessed only by the executor after opening the file
+  private FileChannel channel;
+  private int records;
+  private boolean compactionScheduled;
+
+  private LogStructuredPreferences(File file, int compactionThreshold) {
+    this.file = file;
+    this.compactionThreshold = compactionThreshold;
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override public Thread newThread(@NonNull Runnable runnable) {
+        Thread thread = new Thread(runnable, "LogStructuredPreferences");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Opens log file and reads all values stored in it.
+   * File is created, if it doesn't exist.
+   *
+   * @param file log file
+   * @return opened preferences
+   * @throws IOException if file can't be read
+   */
+  public static LogStructuredPreferences open(@NonNull File file) throws IOException {
+    return open(file, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /**
+   * Opens log file and reads all values stored in it.
+   * File is created, if it doesn't exist.
+   *
+   * @param file log file
+   * @param compactionThreshold minimal number of overwritten records, which triggers compaction
+   * @return opened preferences
+   * @throws IOException if file can't be read
+   */
+  public static LogStructuredPreferences open(@NonNull File file, int compactionThreshold)
+      throws IOException {
+    Preconditions.checkNotNull(file, "file == null");
+    if (compactionThreshold < 0) {
+      throw new IllegalArgumentException("compactionThreshold < 0");
+    }
+
+    LogStructuredPreferences preferences = new LogStructuredPreferences(file, compactionThreshold);
+    preferences.load();
+    return preferences;
+  }
+
+  /**
+   * Waits until all changes are written and closes the log file.
+   * Preferences can't be modified after they're closed, so apply() and commit()
+   * throw IllegalStateException without changing any value.
+   */
+  @Override public void close() throws IOException {
+    synchronized (this) {
+      closed = true;
+      executor.shutdown();
+    }
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        // waiting for pending writes
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      channel.close();
+    }
+  }
+
+  @Override void checkWritable() {
+    if (closed) {
+      throw new IllegalStateException("preferences are closed: " + file);
+    }
+  }
+
+  @Override Future<?> persist(Map<String, Object> modified, boolean clear) {
+    final byte[] frame = encodeFrame(modified, clear);
+    final int frameRecords = modified.size() + (clear ? 1 : 0);
+
+    return executor.submit(new Callable<Void>() {
+      @Override public Void call() throws IOException {
+        append(frame, frameRecords);
+        return null;
+      }
+    });
+  }
+
+  private void load() throws IOException {
+    File compactedFile = getCompactedFile();
+    if (compactedFile.exists() && !compactedFile.delete()) { // left by interrupted compaction
+      throw new IOException("can't delete " + compactedFile);
+    }
+
+    channel = new RandomAccessFile(file, "rw").getChannel();
+    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      // reading whole file
+    }
+    buffer.flip();
+
+    int validLength = 0;
+    while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        break;
+      }
+
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      if (checksum(payload) != checksum) {
+        break;
+      }
+
+      records += decodeFrame(payload);
+      validLength = buffer.position();
+    }
+
+    if (validLength < channel.size()) { // dropping frame interrupted by a crash
+      channel.truncate(validLength);
+    }
+    channel.position(validLength);
+  }
+
+  private void append(byte[] frame, int frameRecords) throws IOException {
+    write(channel, frame);
+    channel.force(false);
+    records += frameRecords;
+
+    int garbage = records - values.size();
+    boolean compactionNeeded = garbage > compactionThreshold && garbage > values.size();
+    if (compactionNeeded && !compactionScheduled && !executor.isShutdown()) {
+      compactionScheduled = true;
+      executor.execute(new Runnable() {
+        @Override public void run() {
+          compact();
+        }
+      });
+    }
+  }
+
+  private void compact() {
+    compactionScheduled = false;
+    Map<String, Object> snapshot;
+    synchronized (this) { // the same lock is held, while changes are applied
+      snapshot = new HashMap<>(values);
+    }
+
+    // frames written after taking the snapshot are appended to the compacted file,
+    // replaying frames, which are already included in the snapshot doesn't change values
+    File compactedFile = getCompactedFile();
+    try {
+      FileChannel compactedChannel = new RandomAccessFile(compactedFile, "rw").getChannel();
+      write(compactedChannel, encodeFrame(snapshot, false));
+      compactedChannel.force(true);
+      compactedChannel.close();
+
+      if (!compactedFile.renameTo(file)) {
+        throw new IOException("can't rename " + compactedFile + " to " + file);
+      }
+
+      channel.close();
+      channel = new RandomAccessFile(file, "rw").getChannel();
+      channel.position(channel.size());
+      records = snapshot.size();
+    } catch (IOException e) {
+      // compaction is retried when next changes are written
+      //noinspection ResultOfMethodCallIgnored
+      compactedFile.delete();
+    }
+  }
+
+  private File getCompactedFile() {
+    return new File(file.getPath() + ".compacted");
+  }
+
+  private static void write(FileChannel channel, byte[] frame) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(frame);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static byte[] encodeFrame(Map<String, Object> modified, boolean clear) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.writeInt(0); // placeholder of payload length
+      output.writeInt(0); // placeholder of checksum
+
+      if (clear) {
+        output.writeByte(TYPE_CLEAR);
+      }
+      for (Map.Entry<String, Object> entry : modified.entrySet()) {
+        writeRecord(output, entry.getKey(), entry.getValue());
+      }
+      output.flush();
+
+      byte[] frame = bytes.toByteArray();
+      int length = frame.length - FRAME_HEADER_SIZE;
+      ByteBuffer header = ByteBuffer.wrap(frame, 0, FRAME_HEADER_SIZE);
+      header.putInt(length);
+      header.putInt(checksum(frame, FRAME_HEADER_SIZE, length));
+      return frame;
+    } catch (IOException e) {
+      throw new IllegalStateException(e); // not thrown while writing to memory
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeRecord(DataOutputStream output, String key, Object value)
+      throws IOException {
+    if (value == REMOVED) {
+      output.writeByte(TYPE_REMOVED);
+      writeString(output, key);
+    } else if (value instanceof Boolean) {
+      output.writeByte(TYPE_BOOLEAN);
+      writeString(output, key);
+      output.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(TYPE_INT);
+      writeString(output, key);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(TYPE_LONG);
+      writeString(output, key);
+      output.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      output.writeByte(TYPE_FLOAT);
+      writeString(output, key);
+      output.writeFloat((Float) value);
+    } else if (value instanceof String) {
+      output.writeByte(TYPE_STRING);
+      writeString(output, key);
+      writeString(output, (String) value);
+    } else if (value instanceof Set) {
+      Set<String> set = (Set<String>) value;
+      output.writeByte(TYPE_STRING_SET);
+      writeString(output, key);
+      output.writeInt(set.size());
+      for (String element : set) {
+        writeString(output, element);
+      }
+    } else {
+      throw new IllegalArgumentException("unsupported type of value: " + value.getClass());
+    }
+  }
+
+  private int decodeFrame(byte[] payload) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+    int decodedRecords = 0;
+
+    try {
+      while (true) {
+        byte type = input.readByte();
+        decodedRecords++;
+
+        if (type == TYPE_CLEAR) {
+          values.clear();
+          continue;
+        }
+
+        String key = readString(input);
+        switch (type) {
+          case TYPE_REMOVED:
+            values.remove(key);
+            break;
+          case TYPE_BOOLEAN:
+            values.put(key, input.readBoolean());
+            break;
+          case TYPE_INT:
+            values.put(key, input.readInt());
+            break;
+          case TYPE_LONG:
+            values.put(key, input.readLong());
+            break;
+          case TYPE_FLOAT:
+            values.put(key, input.readFloat());
+            break;
+          case TYPE_STRING:
+            values.put(key, readString(input));
+            break;
+          case TYPE_STRING_SET:
+            int size = input.readInt();
+            Set<String> set = new HashSet<>(size);
+            for (int i = 0; i < size; i++) {
+              set.add(readString(input));
+            }
+            values.put(key, Collections.unmodifiableSet(set));
+            break;
+          default:
+            throw new IOException("unknown type of record: " + type);
+        }
+      }
+    } catch (EOFException e) {
+      return decodedRecords; // end of the frame
+    }
+  }
+
+  private static void writeString(DataOutputStream output, String string) throws IOException {
+    byte[] bytes = string.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static int checksum(byte[] bytes) {
+    return checksum(bytes, 0, bytes.length);
+  }
+
+  private static int checksum(byte[] bytes, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Base implementation of SharedPreferences, which keeps all values in a concurrent map.
+ * Values are read without locking and changes of one Editor are applied atomically.
+ * Subclasses can persist applied changes in {@link #persist(Map, boolean)} method.
+ * Like SharedPreferences from Android, it notifies listeners only about changed values
+ * and it keeps weak references to listeners, but listeners are notified
+ * on the thread, which applied changes.
+ */
+abstract class MapPreferences implements SharedPreferences {
+  /**
+   * Marker of a value removed by the Editor.
+   */
+  static final Object REMOVED = new Object();
+
+  final Map<String, Object> values = new ConcurrentHashMap<>();
+  private final Set<OnSharedPreferenceChangeListener> listeners =
+      Collections.newSetFromMap(new WeakHashMap<OnSharedPreferenceChangeListener, Boolean>());
+
+  /**
+   * Persists changes, which were applied to the values.
+   * It's called while changes are applied, so changes are persisted in the same order.
+   *
+   * @param modified modified values with {@link #REMOVED} marker for removed ones
+   * @param clear true if all values were removed before modified values were applied
+   * @return future, which is completed when changes are persisted or null if they're persisted
+   */
+  abstract Future<?> persist(Map<String, Object> modified, boolean clear);
+
+  /**
+   * Checks if changes can be applied. It's called before changes of an Editor are applied
+   * while holding the same lock, so no values are changed, when it throws an exception.
+   *
+   * @throws IllegalStateException if changes can't be applied
+   */
+  void checkWritable() {
+  }
+
+  @Override public Map<String, ?> getAll() {
+    return new HashMap<>(values);
+  }
+
+  @Override public String getString(String key, String defValue) {
+    String value = (String) values.get(key);
+    return value != null ? value : defValue;
+  }
+
+  @SuppressWarnings("unchecked") @Override
+  public Set<String> getStringSet(String key, Set<String> defValues) {
+    Set<String> value = (Set<String>) values.get(key);
+    return value != null ? value : defValues;
+  }
+
+  @Override public int getInt(String key, int defValue) {
+    Integer value = (Integer) values.get(key);
+    return value != null ? value : defValue;
+  }
+
+  @Override public long getLong(String key, long defValue) {
+    Long value = (Long) values.get(key);
+    return value != null ? value : defValue;
+  }
+
+  @Override public float getFloat(String key, float defValue) {
+    Float value = (Float) values.get(key);
+    return value != null ? value : defValue;
+  }
+
+  @Override public boolean getBoolean(String key, boolean defValue) {
+    Boolean value = (Boolean) values.get(key);
+    return value != null ? value : defValue;
+  }
+
+  @Override public boolean contains(String key) {
+    return values.containsKey(key);
+  }
+
+  @Override public Editor edit() {
+    return new MapEditor();
+  }
+
+  @Override public void registerOnSharedPreferenceChangeListener(
+      @NonNull OnSharedPreferenceChangeListener listener) {
+    synchronized (listeners) {
+      listeners.add(listener);
+    }
+  }
+
+  @Override public void unregisterOnSharedPreferenceChangeListener(
+      @NonNull OnSharedPreferenceChangeListener listener) {
+    synchronized (listeners) {
+      listeners.remove(listener);
+    }
+  }
+
+  private boolean write(Map<String, Object> modified, boolean clear, boolean waitForPersist) {
+    List<String> changedKeys = new ArrayList<>();
+    boolean cleared;
+    Future<?> persisted;
+
+    synchronized (this) { // changes of one editor are applied atomically
+      checkWritable();
+      cleared = clear && !values.isEmpty();
+      if (clear) {
+        values.clear();
+      }
+
+      for (Map.Entry<String, Object> entry : modified.entrySet()) {
+        String key = entry.getKey();
+        Object value = entry.getValue();
+        Object previous = value == REMOVED ? values.remove(key) : values.put(key, value);
+        boolean changed = value == REMOVED ? previous != null : !value.equals(previous);
+        if (changed) {
+          changedKeys.add(key);
+        }
+      }
+
+      persisted = persist(modified, clear);
+    }
+
+    notifyListeners(changedKeys, cleared);
+    return !waitForPersist || await(persisted);
+  }
+
+  private void notifyListeners(List<String> changedKeys, boolean cleared) {
+    if (changedKeys.isEmpty() && !cleared) {
+      return;
+    }
+
+    List<OnSharedPreferenceChangeListener> listenersToNotify;
+    synchronized (listeners) {
+      listenersToNotify = new ArrayList<>(listeners);
+    }
+
+    for (OnSharedPreferenceChangeListener listener : listenersToNotify) {
+      if (cleared) { // like SharedPreferences since Android 11
+        listener.onSharedPreferenceChanged(this, null);
+      }
+      for (String key : changedKeys) {
+        listener.onSharedPreferenceChanged(this, key);
+      }
+    }
+  }
+
+  private static boolean await(Future<?> future) {
+    if (future == null) {
+      return true;
+    }
+
+    try {
+      future.get();
+      return true;
+    } catch (ExecutionException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private final class MapEditor implements Editor {
+    private final Map<String, Object> modified = new HashMap<>();
+    private boolean clear;
+
+    @Override public Editor putString(String key, String value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putStringSet(String key, Set<String> values) {
+      return put(key, values == null ? null : Collections.unmodifiableSet(new HashSet<>(values)));
+    }
+
+    @Override public Editor putInt(String key, int value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putLong(String key, long value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putFloat(String key, float value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putBoolean(String key, boolean value) {
+      return put(key, value);
+    }
+
+    @Override public synchronized Editor remove(String key) {
+      modified.put(key, REMOVED);
+      return this;
+    }
+
+    @Override public synchronized Editor clear() {
+      clear = true;
+      return this;
+    }
+
+    @Override public boolean commit() {
+      return write(true);
+    }
+
+    @Override public void apply() {
+      write(false);
+    }
+
+    private boolean write(boolean waitForPersist) {
+      Map<String, Object> changes;
+      boolean clearValues;
+
+      synchronized (this) {
+        changes = new HashMap<>(modified);
+        clearValues = clear;
+        modified.clear();
+        clear = false;
+      }
+
+      return MapPreferences.this.write(changes, clearValues, waitForPersist);
+    }
+
+    private synchronized Editor put(String key, Object value) {
+      if (value == null) {
+        return remove(key);
+      }
+      modified.put(key, value);
+      return this;
+    }
+  }
+}
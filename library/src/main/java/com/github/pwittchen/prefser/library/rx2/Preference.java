@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+import java.lang.reflect.Type;
+
+/**
+ * Handle of a single preference with a given key, type and default value.
+ * Accessor or JSON conversion of the value is resolved once, when the handle is created
+ * with {@link Prefser#preference(String, Class, Object)}, so reading and writing the value
+ * doesn't validate arguments and doesn't look up the type again.
+ * Handle is immutable, so it can be shared between threads and kept in a static field.
+ *
+ * @param <T> type of the preference
+ */
+public final class Preference<T> {
+  private final Prefser prefser;
+  private final String key;
+  private final Type typeOfT;
+  private final Accessor<T> accessor;
+  private final T defaultValue;
+  private final Function<String, T> valueOfKey = new Function<String, T>() {
+    @Override public T apply(@io.reactivex.annotations.NonNull String s) throws Exception {
+      return get();
+    }
+  };
+
+  Preference(Prefser prefser, String key, Type typeOfT, Accessor<T> accessor, T defaultValue) {
+    this.prefser = prefser;
+    this.key = key;
+    this.typeOfT = typeOfT;
+    this.accessor = accessor;
+    this.defaultValue = defaultValue;
+  }
+
+  /**
+   * @return key of the preference
+   */
+  public String key() {
+    return key;
+  }
+
+  /**
+   * @return default value of the preference
+   */
+  public T defaultValue() {
+    return defaultValue;
+  }
+
+  /**
+   * Checks if value of the preference is stored.
+   *
+   * @return true if value is stored and false if not
+   */
+  public boolean isSet() {
+    return prefser.contains(key);
+  }
+
+  /**
+   * Gets value of the preference.
+   *
+   * @return stored value or default value if value is not stored
+   */
+  public T get() {
+    if (accessor == null) {
+      return prefser.readJson(key, typeOfT, defaultValue);
+    }
+
+    if (defaultValue == null && !prefser.contains(key)) {
+      return null;
+    }
+
+    return accessor.get(key, defaultValue);
+  }
+
+  /**
+   * Stores value of the preference.
+   *
+   * @param value value to be stored
+   */
+  public void set(@NonNull T value) {
+    Preconditions.checkNotNull(value, "value == null");
+    prefser.put(key, value, accessor, typeOfT);
+  }
+
+  /**
+   * Removes value of the preference.
+   */
+  public void delete() {
+    prefser.remove(key);
+  }
+
+  /**
+   * Gets value of the preference as a RxJava Observable, which emits it every time,
+   * when the value changes. Default value is emitted, when the value is removed.
+   *
+   * @return Observable value of the preference
+   */
+  public Observable<T> observe() {
+    return prefser.observeKey(key).map(valueOfKey);
+  }
+}
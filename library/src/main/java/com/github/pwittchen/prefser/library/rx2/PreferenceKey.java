@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares method of an interface annotated with {@link PrefserPreferences},
+ * which accesses preference stored under a given key. Method can be:
+ * <ul>
+ * <li>getter without parameters, which returns value of the preference</li>
+ * <li>setter with one parameter and void return type, which stores value of the preference</li>
+ * <li>method without parameters, which returns {@link Preference} handle</li>
+ * </ul>
+ * All methods with the same key have to use the same type of the value.
+ */
+@Documented @Retention(RetentionPolicy.CLASS) @Target(ElementType.METHOD)
+public @interface PreferenceKey {
+  /**
+   * @return key of the preference
+   */
+  String value();
+
+  /**
+   * Default value of the preference written as a Java literal without quotes
+   * (e.g. "true", "42" or "text"). It can be set only for primitives, their wrappers
+   * and Strings. When it's not set, primitives default to 0 or false and other types to null.
+   * Array is used only to tell, if the value is set, so it can't contain more than one element.
+   *
+   * @return default value of the preference or empty array if it's not set
+   */
+  String[] defaultValue() default {};
+}
@@ -21,14 +21,14 @@ import java.util.Map;
 
 class PreferencesAccessorsProvider implements AccessorsProvider {
   private final SharedPreferences preferences;
-  private final SharedPreferences.Editor editor;
+  private final DoubleAccessor doubleAccessor;
   private final Map<Class<?>, Accessor<?>> accessors = new HashMap<>();
 
-  PreferencesAccessorsProvider(SharedPreferences preferences, SharedPreferences.Editor editor) {
+  PreferencesAccessorsProvider(SharedPreferences preferences, DoubleAccessor doubleAccessor) {
     Preconditions.checkNotNull(preferences, "preferences == null");
-    Preconditions.checkNotNull(editor, "editor == null");
+    Preconditions.checkNotNull(doubleAccessor, "doubleAccessor == null");
     this.preferences = preferences;
-    this.editor = editor;
+    this.doubleAccessor = doubleAccessor;
     createAccessors();
   }
 
@@ -51,8 +51,8 @@ class PreferencesAccessorsProvider implements AccessorsProvider {
         return preferences.getBoolean(key, defaultValue);
       }
 
-      @Override public void put(String key, Boolean value) {
-        editor.putBoolean(key, value).apply();
+      @Override public void put(SharedPreferences.Editor editor, String key, Boolean value) {
+        editor.putBoolean(key, value);
       }
     });
   }
@@ -63,8 +63,8 @@ class PreferencesAccessorsProvider implements AccessorsProvider {
         return preferences.getFloat(key, defaultValue);
       }
 
-      @Override public void put(String key, Float value) {
-        editor.putFloat(key, value).apply();
+      @Override public void put(SharedPreferences.Editor editor, String key, Float value) {
+        editor.putFloat(key, value);
       }
     });
   }
@@ -75,8 +75,8 @@ class PreferencesAccessorsProvider implements AccessorsProvider {
         return preferences.getInt(key, defaultValue);
       }
 
-      @Override public void put(String key, Integer value) {
-        editor.putInt(key, value).apply();
+      @Override public void put(SharedPreferences.Editor editor, String key, Integer value) {
+        editor.putInt(key, value);
       }
     });
   }
@@ -87,22 +87,14 @@ class PreferencesAccessorsProvider implements AccessorsProvider {
         return preferences.getLong(key, defaultValue);
       }
 
-      @Override public void put(String key, Long value) {
-        editor.putLong(key, value).apply();
+      @Override public void put(SharedPreferences.Editor editor, String key, Long value) {
+        editor.putLong(key, value);
       }
     });
   }
 
   private void createDoubleAccessor() {
-    accessors.put(Double.class, new Accessor<Double>() {
-      @Override public Double get(String key, Double defaultValue) {
-        return Double.valueOf(preferences.getString(key, String.valueOf(defaultValue)));
-      }
-
-      @Override public void put(String key, Double value) {
-        editor.putString(key, String.valueOf(value)).apply();
-      }
-    });
+    accessors.put(Double.class, doubleAccessor);
   }
 
   private void createStringAccessor() {
@@ -111,8 +103,8 @@ class PreferencesAccessorsProvider implements AccessorsProvider {
         return preferences.getString(key, String.valueOf(defaultValue));
       }
 
-      @Override public void put(String key, String value) {
-        editor.putString(key, String.valueOf(value)).apply();
+      @Override public void put(SharedPreferences.Editor editor, String key, String value) {
+        editor.putString(key, String.valueOf(value));
       }
     });
   }
@@ -21,19 +21,20 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import androidx.annotation.NonNull;
 
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
-import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
 import io.reactivex.functions.Cancellable;
 import io.reactivex.functions.Function;
-import io.reactivex.functions.Predicate;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.Callable;
 
 /**
  * Prefser is a wrapper for Android SharedPreferences
@@ -65,11 +66,24 @@ public class Prefser {
   private static final String CLASS_OF_T_IS_NULL = "classOfT == null";
   private static final String TYPE_TOKEN_OF_T_IS_NULL = "typeTokenOfT == null";
   private static final String VALUE_IS_NULL = "value == null";
+  private static final String STRATEGY_IS_NULL = "strategy == null";
+  private static final String SCHEDULER_IS_NULL = "decodeScheduler == null";
+  private static final Object MISSING_VALUE = new Object(); // RxJava can't emit null
 
   private final SharedPreferences preferences;
   private final SharedPreferences.Editor editor;
   private final JsonConverter jsonConverter;
+  private final Map<Type, BinaryCodec<?>> binaryCodecs;
+  private final int compressionThreshold;
+  private final int chunkSize;
+  private final boolean skipUnchangedWrites;
   private final AccessorsProvider accessorProvider;
+  private final DoubleAccessor doubleAccessor;
+  private final ChangeDispatcher changeDispatcher;
+  private final DecodedValueCache decodedValueCache;
+  private final JsonBuffer jsonBuffer = new JsonBuffer();
+  private final KeyIndex keyIndex;
+  private final WriteBehindPreferences writeBehindPreferences;
 
   /**
    * Creates Prefser object with default SharedPreferences from PreferenceManager.
@@ -108,14 +122,62 @@ public class Prefser {
    * @param sharedPreferences instance of SharedPreferences
    * @param jsonConverter Json Converter
    */
-  @SuppressLint("CommitPrefEdits") public Prefser(@NonNull SharedPreferences sharedPreferences,
+  public Prefser(@NonNull SharedPreferences sharedPreferences,
       @NonNull JsonConverter jsonConverter) {
+    this(sharedPreferences, jsonConverter, PrefserSettings.create());
+  }
+
+  /**
+   * Creates Prefser object with default SharedPreferences from PreferenceManager
+   * with JsonConverter implementation and custom settings.
+   *
+   * @param context Android Context
+   * @param jsonConverter Json Converter
+   * @param settings Prefser settings
+   */
+  public Prefser(@NonNull Context context, @NonNull JsonConverter jsonConverter,
+      @NonNull PrefserSettings settings) {
+    this(PreferenceManager.getDefaultSharedPreferences(context), jsonConverter, settings);
+  }
+
+  /**
+   * Creates Prefser object with provided object of SharedPreferences,
+   * which will be wrapped with JsonConverter implementation and custom settings.
+   *
+   * @param sharedPreferences instance of SharedPreferences
+   * @param jsonConverter Json Converter
+   * @param settings Prefser settings
+   */
+  @SuppressLint("CommitPrefEdits") public Prefser(@NonNull SharedPreferences sharedPreferences,
+      @NonNull JsonConverter jsonConverter, @NonNull PrefserSettings settings) {
     Preconditions.checkNotNull(sharedPreferences, "sharedPreferences == null");
     Preconditions.checkNotNull(jsonConverter, "jsonConverter == null");
-    this.preferences = sharedPreferences;
+    Preconditions.checkNotNull(settings, "settings == null");
+    this.writeBehindPreferences = settings.writeBehindIntervalMillis() > 0
+        ? new WriteBehindPreferences(sharedPreferences, settings.writeBehindScheduler(),
+        settings.writeBehindIntervalMillis()) : null;
+    this.preferences = writeBehindPreferences != null ? writeBehindPreferences : sharedPreferences;
     this.editor = preferences.edit();
     this.jsonConverter = jsonConverter;
-    this.accessorProvider = new PreferencesAccessorsProvider(preferences, editor);
+    this.binaryCodecs = settings.binaryCodecs();
+    this.compressionThreshold = settings.compressionThreshold();
+    this.chunkSize = settings.chunkSize();
+    this.skipUnchangedWrites = settings.skipUnchangedWrites();
+    this.doubleAccessor = new DoubleAccessor(preferences, settings.storeDoublesAsLongBits());
+    this.accessorProvider = new PreferencesAccessorsProvider(preferences, doubleAccessor);
+    this.changeDispatcher = new ChangeDispatcher(preferences);
+    this.keyIndex = new KeyIndex(preferences, changeDispatcher);
+    this.decodedValueCache = settings.cacheDecodedValues() ? createDecodedValueCache() : null;
+  }
+
+  private DecodedValueCache createDecodedValueCache() {
+    final DecodedValueCache cache = new DecodedValueCache();
+    changeDispatcher.addListener(new ChangeDispatcher.Listener() {
+      @Override public void onChange(String key) {
+        cache.invalidate(key);
+      }
+    });
+    return cache;
   }
 
   /**
@@ -127,6 +189,16 @@ public class Prefser {
     return preferences;
   }
 
+  /**
+   * Writes values pending in write-behind mode to SharedPreferences immediately.
+   * It does nothing when write-behind mode is disabled in {@link PrefserSettings}.
+   */
+  public void flush() {
+    if (writeBehindPreferences != null) {
+      writeBehindPreferences.flush(false);
+    }
+  }
+
   /**
    * Checks if preferences contains value with a given key
    *
@@ -165,15 +237,41 @@ public class Prefser {
    * @param <T> return type of the preference (e.g. String)
    * @return Observable value from SharedPreferences associated with given key or default value
    */
-  public <T> Observable<T> getAndObserve(final String key, final TypeToken<T> typeTokenOfT,
-      final T defaultValue) {
-    return observe(key, typeTokenOfT, defaultValue) // start observing
-        .mergeWith(
-            Observable.defer(new Callable<ObservableSource<? extends T>>() { // then start getting
-              @Override public ObservableSource<? extends T> call() throws Exception {
-                return Observable.just(get(key, typeTokenOfT, defaultValue));
-              }
-            }));
+  public <T> Observable<T> getAndObserve(String key, TypeToken<T> typeTokenOfT,
+      T defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+
+    return snapshotAndObserve(key, typeTokenOfT.getType(), defaultValue, null);
+  }
+
+  /**
+   * Emits the current value and then its changes in order and each of them once.
+   * Listener is added before the current value is read. Each read remembers version
+   * of the last change of the key, so notifications about changes already included
+   * in the read value are skipped. Value is also compared with the last emitted one
+   * in its stored form before decoding, because SharedPreferences can apply a change
+   * before notifying about it.
+   *
+   * @param readScheduler scheduler, on which values are read or null to read them immediately
+   */
+  private <T> Observable<T> snapshotAndObserve(final String key, final Type typeOfT,
+      final T defaultValue, final Scheduler readScheduler) {
+    return Observable.create(new ObservableOnSubscribe<T>() {
+      @Override
+      public void subscribe(final @io.reactivex.annotations.NonNull ObservableEmitter<T> e) {
+        final SnapshotListener<T> listener =
+            new SnapshotListener<>(e, key, typeOfT, defaultValue, readScheduler);
+        changeDispatcher.addListener(key, listener);
+        e.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() {
+            changeDispatcher.removeListener(key, listener);
+          }
+        });
+        listener.onChange(key);
+      }
+    });
   }
 
   /**
@@ -211,12 +309,7 @@ public class Prefser {
     Preconditions.checkNotNull(key, KEY_IS_NULL);
     Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
 
-    return observePreferences().filter(new Predicate<String>() {
-      @Override public boolean test(@io.reactivex.annotations.NonNull String filteredKey)
-          throws Exception {
-        return key.equals(filteredKey);
-      }
-    }).map(new Function<String, T>() {
+    return observeKey(key).map(new Function<String, T>() {
       @Override public T apply(@io.reactivex.annotations.NonNull String s) throws Exception {
         return get(key, typeTokenOfT, defaultValue);
       }
@@ -224,171 +317,1352 @@ public class Prefser {
   }
 
   /**
-   * Gets value from SharedPreferences with a given key and type.
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Observable, which can be subscribed.
+   * SharedPreferences notify about changes on the main thread, so value is read
+   * and decoded on a given scheduler instead of inside of the change listener.
    * If value is not found, we can return defaultValue.
    *
    * @param key key of the preference
-   * @param classOfT class of T (e.g. {@code String.class})
+   * @param classOfT class of T (e.g. String.class)
    * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param decodeScheduler scheduler, on which value is read (e.g. Schedulers.computation())
    * @param <T> return type of the preference (e.g. String)
-   * @return value from SharedPreferences associated with given key or default value
+   * @return Observable value from SharedPreferences associated with given key or default value
    */
-  public <T> T get(@NonNull String key, @NonNull Class<T> classOfT, T defaultValue) {
-    Preconditions.checkNotNull(key, KEY_IS_NULL);
+  public <T> Observable<T> observe(@NonNull String key, @NonNull Class<T> classOfT,
+      T defaultValue, @NonNull Scheduler decodeScheduler) {
     Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
+    return observe(key, TypeToken.fromClass(classOfT), defaultValue, decodeScheduler);
+  }
 
-    if (!contains(key) && defaultValue == null) {
-      return null;
-    }
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Observable, which can be subscribed.
+   * SharedPreferences notify about changes on the main thread, so value is read
+   * and decoded on a given scheduler instead of inside of the change listener.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param decodeScheduler scheduler, on which value is read (e.g. Schedulers.computation())
+   * @param <T> return type of the preference (e.g. String)
+   * @return Observable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Observable<T> observe(@NonNull String key, @NonNull TypeToken<T> typeTokenOfT,
+      T defaultValue, @NonNull Scheduler decodeScheduler) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    Preconditions.checkNotNull(decodeScheduler, SCHEDULER_IS_NULL);
 
-    return get(key, TypeToken.fromClass(classOfT), defaultValue);
+    return readOn(observeKey(key), decodeScheduler, key, typeTokenOfT, defaultValue);
   }
 
   /**
-   * Gets value from SharedPreferences with a given key and type.
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Observable, which can be subscribed.
+   * Emit preference as first element of the stream even if preferences wasn't changed.
+   * Both the first value and changed values are read and decoded on a given scheduler.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. String.class)
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param decodeScheduler scheduler, on which value is read (e.g. Schedulers.computation())
+   * @param <T> return type of the preference (e.g. String)
+   * @return Observable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Observable<T> getAndObserve(@NonNull String key, @NonNull Class<T> classOfT,
+      T defaultValue, @NonNull Scheduler decodeScheduler) {
+    Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
+    return getAndObserve(key, TypeToken.fromClass(classOfT), defaultValue, decodeScheduler);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Observable, which can be subscribed.
+   * Emit preference as first element of the stream even if preferences wasn't changed.
+   * Both the first value and changed values are read and decoded on a given scheduler.
    * If value is not found, we can return defaultValue.
    *
    * @param key key of the preference
    * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
    * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param decodeScheduler scheduler, on which value is read (e.g. Schedulers.computation())
    * @param <T> return type of the preference (e.g. String)
-   * @return value from SharedPreferences associated with given key or default value
+   * @return Observable value from SharedPreferences associated with given key or default value
    */
-  public <T> T get(@NonNull String key, @NonNull TypeToken<T> typeTokenOfT, T defaultValue) {
+  public <T> Observable<T> getAndObserve(@NonNull String key,
+      @NonNull TypeToken<T> typeTokenOfT, T defaultValue, @NonNull Scheduler decodeScheduler) {
     Preconditions.checkNotNull(key, KEY_IS_NULL);
     Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    Preconditions.checkNotNull(decodeScheduler, SCHEDULER_IS_NULL);
 
-    Type typeOfT = typeTokenOfT.getType();
+    return snapshotAndObserve(key, typeTokenOfT.getType(), defaultValue, decodeScheduler);
+  }
 
-    for (Map.Entry<Class<?>, Accessor<?>> entry : accessorProvider.getAccessors().entrySet()) {
-      if (typeOfT.equals(entry.getKey())) {
-        @SuppressWarnings("unchecked") Accessor<T> accessor = (Accessor<T>) entry.getValue();
-        return accessor.get(key, defaultValue);
+  private <T> Observable<T> readOn(Observable<String> keys, Scheduler decodeScheduler,
+      final String key, final TypeToken<T> typeTokenOfT, final T defaultValue) {
+    return keys.observeOn(decodeScheduler).map(new Function<String, T>() {
+      @Override public T apply(@io.reactivex.annotations.NonNull String s) throws Exception {
+        return get(key, typeTokenOfT, defaultValue);
       }
-    }
-
-    if (contains(key)) {
-      return jsonConverter.fromJson(preferences.getString(key, null), typeOfT);
-    } else {
-      return defaultValue;
-    }
+    });
   }
 
   /**
-   * returns RxJava Observable from SharedPreferences used inside Prefser object.
-   * You can subscribe this Observable and every time,
-   * when SharedPreferences will change, subscriber will be notified
-   * about that and you will be able to read
-   * key of the value, which has been changed.
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Observable, which can be subscribed.
+   * Unlike {@link #observe(String, Class, Object)}, it emits value only when its stored
+   * representation is different than the last one seen by the subscriber.
+   * Stored representation is compared before decoding, so redundant changes are not decoded.
+   * If value is not found, we can return defaultValue.
    *
-   * @return Observable with String containing key of the value in default SharedPreferences
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. String.class)
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param <T> return type of the preference (e.g. String)
+   * @return Observable value from SharedPreferences associated with given key or default value
    */
-  public Observable<String> observePreferences() {
-    return Observable.create(new ObservableOnSubscribe<String>() {
+  public <T> Observable<T> observeDistinct(@NonNull String key, @NonNull Class<T> classOfT,
+      T defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
+
+    return observeDistinct(key, TypeToken.fromClass(classOfT), defaultValue);
+  }
 
-      final Collection<OnChangeListener> listenerReferences =
-              Collections.synchronizedList(new ArrayList<OnChangeListener>());
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Observable, which can be subscribed.
+   * Unlike {@link #observe(String, TypeToken, Object)}, it emits value only when its stored
+   * representation is different than the last one seen by the subscriber.
+   * Stored representation is compared before decoding, so redundant changes are not decoded.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param <T> return type of the preference (e.g. String)
+   * @return Observable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Observable<T> observeDistinct(@NonNull final String key,
+      @NonNull TypeToken<T> typeTokenOfT, final T defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    final Type typeOfT = typeTokenOfT.getType();
 
+    return Observable.create(new ObservableOnSubscribe<T>() {
       @Override
-      public void subscribe(final @io.reactivex.annotations.NonNull ObservableEmitter<String> e) {
-        final OnChangeListener onChangeListener = new OnChangeListener(e);
-        preferences.registerOnSharedPreferenceChangeListener(onChangeListener);
-        listenerReferences.add(onChangeListener);
+      public void subscribe(final @io.reactivex.annotations.NonNull ObservableEmitter<T> e) {
+        final DistinctListener<T> listener =
+            new DistinctListener<>(e, key, typeOfT, defaultValue);
+        changeDispatcher.addListener(key, listener);
         e.setCancellable(new Cancellable() {
           @Override
           public void cancel() {
-            preferences.unregisterOnSharedPreferenceChangeListener(onChangeListener);
-            listenerReferences.remove(onChangeListener);
+            changeDispatcher.removeListener(key, listener);
           }
         });
+        listener.readSeenValue(); // read after adding the listener, so no change is lost
       }
     });
   }
 
   /**
-   * Puts value to the SharedPreferences.
-   *
-   * @param key key under which value will be stored
-   * @param value value to be stored
+   * Reads value in a form, in which it's stored in SharedPreferences.
+   * Values of custom types are returned as not decoded JSON or binary Strings.
    */
-  public <T> void put(@NonNull String key, @NonNull T value) {
-    Preconditions.checkNotNull(value, VALUE_IS_NULL);
-    put(key, value, TypeToken.fromValue(value));
+  private <T> Object readStoredValue(String key, Type typeOfT, T defaultValue) {
+    if (!contains(key)) {
+      return MISSING_VALUE;
+    }
+
+    Accessor<T> accessor = getAccessor(typeOfT);
+    if (accessor != null) {
+      return accessor.get(key, defaultValue);
+    }
+
+    return preferences.getString(key, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T decodeStoredValue(String key, Type typeOfT, Object storedValue, T defaultValue) {
+    if (storedValue == MISSING_VALUE) {
+      return defaultValue;
+    }
+
+    if (getAccessor(typeOfT) != null) {
+      return (T) storedValue;
+    }
+
+    return decode((String) storedValue, key, typeOfT);
   }
 
   /**
-   * Puts value to the SharedPreferences.
+   * Gets value from SharedPreferences with a given key and type.
+   * If value is not found, we can return defaultValue.
    *
-   * @param key key under which value will be stored
-   * @param value value to be stored
-   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<> {})
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. {@code String.class})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param <T> return type of the preference (e.g. String)
+   * @return value from SharedPreferences associated with given key or default value
    */
-  public <T> void put(@NonNull String key, @NonNull T value, @NonNull TypeToken<T> typeTokenOfT) {
+  public <T> T get(@NonNull String key, @NonNull Class<T> classOfT, T defaultValue) {
     Preconditions.checkNotNull(key, KEY_IS_NULL);
-    Preconditions.checkNotNull(value, VALUE_IS_NULL);
-    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
 
-    if (!accessorProvider.getAccessors().containsKey(value.getClass())) {
-      String jsonValue = jsonConverter.toJson(value, typeTokenOfT.getType());
-      editor.putString(key, String.valueOf(jsonValue)).apply();
-      return;
+    if (!contains(key) && defaultValue == null) {
+      return null;
     }
 
-    Class<?> classOfValue = value.getClass();
+    Accessor<T> accessor = getAccessor(classOfT);
 
-    for (Map.Entry<Class<?>, Accessor<?>> entry : accessorProvider.getAccessors().entrySet()) {
-      if (classOfValue.equals(entry.getKey())) {
-        @SuppressWarnings("unchecked") Accessor<T> accessor = (Accessor<T>) entry.getValue();
-        accessor.put(key, value);
-      }
+    if (accessor != null) {
+      return accessor.get(key, defaultValue);
     }
+
+    return get(key, TypeToken.fromClass(classOfT), defaultValue);
   }
 
   /**
-   * Removes value defined by a given key.
+   * Gets value from SharedPreferences with a given key and type.
+   * If value is not found, we can return defaultValue.
    *
-   * @param key key of the preference to be removed
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param <T> return type of the preference (e.g. String)
+   * @return value from SharedPreferences associated with given key or default value
    */
-  public void remove(@NonNull String key) {
+  public <T> T get(@NonNull String key, @NonNull TypeToken<T> typeTokenOfT, T defaultValue) {
     Preconditions.checkNotNull(key, KEY_IS_NULL);
-    if (!contains(key)) {
-      return;
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+
+    Type typeOfT = typeTokenOfT.getType();
+    Accessor<T> accessor = getAccessor(typeOfT);
+
+    if (accessor != null) {
+      return accessor.get(key, defaultValue);
     }
 
-    editor.remove(key).apply();
+    return readJson(key, typeOfT, defaultValue);
   }
 
   /**
-   * Clears all SharedPreferences.
+   * Reads value stored as JSON or in binary form.
+   *
+   * @param key key of the preference
+   * @param typeOfT type of the value
+   * @param defaultValue default value of the preference
+   * @param <T> type of the value
+   * @return decoded value or default value if value is not found
    */
-  public void clear() {
-    if (size() == 0) {
-      return;
+  <T> T readJson(String key, Type typeOfT, T defaultValue) {
+    String json = preferences.getString(key, null);
+    return json != null ? decode(json, key, typeOfT) : defaultValue;
+  }
+
+  private <T> T decode(String storedValue, String key, Type typeOfT) {
+    if (decodedValueCache != null) {
+      T cachedValue = decodedValueCache.get(key, typeOfT, storedValue);
+      if (cachedValue != null) {
+        return cachedValue;
+      }
     }
 
-    editor.clear().apply();
+    String encodedValue = storedValue;
+    if (ChunkedValues.isHeader(storedValue)) {
+      encodedValue = ChunkedValues.read(preferences, key, storedValue);
+      if (encodedValue == null) {
+        // value was written again while its chunks were read, so the new one is read
+        return readJson(key, typeOfT, null);
+      }
+    }
+
+    T value = decodeValue(encodedValue, typeOfT);
+    if (decodedValueCache != null) {
+      decodedValueCache.put(key, typeOfT, storedValue, value);
+    }
+    return value;
+  }
+
+  private <T> T decodeValue(String storedValue, Type typeOfT) {
+    if (CompressedValues.isCompressed(storedValue)) {
+      storedValue = CompressedValues.decompress(storedValue);
+    }
+
+    BinaryCodec<T> binaryCodec = getBinaryCodec(typeOfT);
+    if (binaryCodec != null && BinaryValues.isBinary(storedValue)) {
+      return binaryCodec.decode(BinaryValues.decode(storedValue));
+    }
+    return jsonConverter.fromJson(storedValue, typeOfT);
   }
 
   /**
-   * Returns number of all items stored in SharedPreferences.
+   * Gets boolean value from SharedPreferences with a given key without boxing it.
+   * If value is not found, we can return defaultValue.
    *
-   * @return number of all stored items
+   * @param key key of the preference
+   * @param defaultValue default value of the preference
+   * @return value from SharedPreferences associated with given key or default value
    */
-  public int size() {
-    return preferences.getAll().size();
+  public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    return preferences.getBoolean(key, defaultValue);
   }
 
-  private static class OnChangeListener
-          implements SharedPreferences.OnSharedPreferenceChangeListener {
-    private final ObservableEmitter<? super String> emitter;
+  /**
+   * Gets int value from SharedPreferences with a given key without boxing it.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param defaultValue default value of the preference
+   * @return value from SharedPreferences associated with given key or default value
+   */
+  public int getInt(@NonNull String key, int defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    return preferences.getInt(key, defaultValue);
+  }
 
-    OnChangeListener(ObservableEmitter<? super String> emitter) {
+  /**
+   * Gets long value from SharedPreferences with a given key without boxing it.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param defaultValue default value of the preference
+   * @return value from SharedPreferences associated with given key or default value
+   */
+  public long getLong(@NonNull String key, long defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    return preferences.getLong(key, defaultValue);
+  }
+
+  /**
+   * Gets float value from SharedPreferences with a given key without boxing it.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param defaultValue default value of the preference
+   * @return value from SharedPreferences associated with given key or default value
+   */
+  public float getFloat(@NonNull String key, float defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    return preferences.getFloat(key, defaultValue);
+  }
+
+  /**
+   * Gets double value from SharedPreferences with a given key without boxing it.
+   * If value is not found, we can return defaultValue.
+   *
+   * @param key key of the preference
+   * @param defaultValue default value of the preference
+   * @return value from SharedPreferences associated with given key or default value
+   */
+  public double getDouble(@NonNull String key, double defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    return doubleAccessor.getDouble(key, defaultValue);
+  }
+
+  /**
+   * returns RxJava Observable from SharedPreferences used inside Prefser object.
+   * You can subscribe this Observable and every time,
+   * when SharedPreferences will change, subscriber will be notified
+   * about that and you will be able to read
+   * key of the value, which has been changed.
+   *
+   * @return Observable with String containing key of the value in default SharedPreferences
+   */
+  public Observable<String> observePreferences() {
+    return Observable.create(new ObservableOnSubscribe<String>() {
+      @Override
+      public void subscribe(final @io.reactivex.annotations.NonNull ObservableEmitter<String> e) {
+        final OnChangeListener onChangeListener = new OnChangeListener(e);
+        changeDispatcher.addListener(onChangeListener);
+        e.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() {
+            changeDispatcher.removeListener(onChangeListener);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Returns RxJava Observable emitting a given key every time, when value under this key changes.
+   * All observers share single listener of the SharedPreferences,
+   * which notifies only observers of the changed key.
+   *
+   * @param key key of the preference
+   * @return Observable with a given key
+   */
+  Observable<String> observeKey(final String key) {
+    return Observable.create(new ObservableOnSubscribe<String>() {
+      @Override
+      public void subscribe(final @io.reactivex.annotations.NonNull ObservableEmitter<String> e) {
+        final OnChangeListener onChangeListener = new OnChangeListener(e);
+        changeDispatcher.addListener(key, onChangeListener);
+        e.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() {
+            changeDispatcher.removeListener(key, onChangeListener);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Returns RxJava Flowable from SharedPreferences used inside Prefser object.
+   * It emits keys of changed values in the same way as {@link #observePreferences()},
+   * but it handles slow subscribers with a given backpressure strategy
+   * instead of buffering all changes.
+   *
+   * @param strategy backpressure strategy (e.g. {@code BackpressureStrategy.LATEST})
+   * @return Flowable with String containing key of the value in default SharedPreferences
+   */
+  public Flowable<String> observePreferences(@NonNull BackpressureStrategy strategy) {
+    Preconditions.checkNotNull(strategy, STRATEGY_IS_NULL);
+
+    return Flowable.create(new FlowableOnSubscribe<String>() {
+      @Override
+      public void subscribe(final @io.reactivex.annotations.NonNull FlowableEmitter<String> e) {
+        final FlowableOnChangeListener onChangeListener = new FlowableOnChangeListener(e);
+        changeDispatcher.addListener(onChangeListener);
+        e.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() {
+            changeDispatcher.removeListener(onChangeListener);
+          }
+        });
+      }
+    }, strategy);
+  }
+
+  /**
+   * Returns RxJava Flowable from SharedPreferences used inside Prefser object.
+   * It emits keys of changed values in the same way as {@link #observePreferences()},
+   * but it buffers at most a given number of keys for slow subscribers.
+   * When the buffer is full, the oldest keys are dropped.
+   *
+   * @param bufferCapacity maximal number of keys buffered for slow subscribers
+   * @return Flowable with String containing key of the value in default SharedPreferences
+   */
+  public Flowable<String> observePreferences(int bufferCapacity) {
+    checkBufferCapacity(bufferCapacity);
+    return bufferLatest(observePreferences(BackpressureStrategy.MISSING), bufferCapacity);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #observe(String, Class, Object)},
+   * but it handles slow subscribers with a given backpressure strategy.
+   * Values are read only when they're emitted, so values dropped by the strategy aren't decoded.
+   *
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. String.class)
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param strategy backpressure strategy (e.g. {@code BackpressureStrategy.LATEST})
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> observe(@NonNull String key, @NonNull Class<T> classOfT,
+      T defaultValue, @NonNull BackpressureStrategy strategy) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
+
+    return observe(key, TypeToken.fromClass(classOfT), defaultValue, strategy);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #observe(String, TypeToken, Object)},
+   * but it handles slow subscribers with a given backpressure strategy.
+   * Values are read only when they're emitted, so values dropped by the strategy aren't decoded.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param strategy backpressure strategy (e.g. {@code BackpressureStrategy.LATEST})
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> observe(@NonNull final String key,
+      @NonNull final TypeToken<T> typeTokenOfT, final T defaultValue,
+      @NonNull BackpressureStrategy strategy) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    Preconditions.checkNotNull(strategy, STRATEGY_IS_NULL);
+
+    return observeKey(key, strategy).map(new Function<String, T>() {
+      @Override public T apply(@io.reactivex.annotations.NonNull String s) throws Exception {
+        return get(key, typeTokenOfT, defaultValue);
+      }
+    });
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #getAndObserve(String, Class, Object)},
+   * but it handles slow subscribers with a given backpressure strategy.
+   *
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. String.class)
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param strategy backpressure strategy (e.g. {@code BackpressureStrategy.LATEST})
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> getAndObserve(String key, Class<T> classOfT, T defaultValue,
+      BackpressureStrategy strategy) {
+    return getAndObserve(key, TypeToken.fromClass(classOfT), defaultValue, strategy);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #getAndObserve(String, TypeToken, Object)},
+   * but it handles slow subscribers with a given backpressure strategy.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param strategy backpressure strategy (e.g. {@code BackpressureStrategy.LATEST})
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> getAndObserve(String key, TypeToken<T> typeTokenOfT,
+      T defaultValue, BackpressureStrategy strategy) {
+    Preconditions.checkNotNull(strategy, STRATEGY_IS_NULL);
+    return getAndObserve(key, typeTokenOfT, defaultValue).toFlowable(strategy);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #observe(String, Class, Object)},
+   * but it buffers at most a given number of changes for slow subscribers.
+   * When the buffer is full, the oldest changes are dropped.
+   *
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. String.class)
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param bufferCapacity maximal number of changes buffered for slow subscribers
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> observe(@NonNull String key, @NonNull Class<T> classOfT,
+      T defaultValue, int bufferCapacity) {
+    Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
+    return observe(key, TypeToken.fromClass(classOfT), defaultValue, bufferCapacity);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #observe(String, TypeToken, Object)},
+   * but it buffers at most a given number of changes for slow subscribers.
+   * When the buffer is full, the oldest changes are dropped.
+   * Changes are buffered before values are read, so dropped values aren't decoded.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param bufferCapacity maximal number of changes buffered for slow subscribers
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> observe(@NonNull final String key,
+      @NonNull final TypeToken<T> typeTokenOfT, final T defaultValue, int bufferCapacity) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    checkBufferCapacity(bufferCapacity);
+
+    return bufferLatest(observeKey(key, BackpressureStrategy.MISSING), bufferCapacity)
+        .map(new Function<String, T>() {
+          @Override public T apply(@io.reactivex.annotations.NonNull String s) throws Exception {
+            return get(key, typeTokenOfT, defaultValue);
+          }
+        });
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #getAndObserve(String, Class, Object)},
+   * but it buffers at most a given number of values for slow subscribers.
+   * When the buffer is full, the oldest values are dropped.
+   *
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. String.class)
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param bufferCapacity maximal number of values buffered for slow subscribers
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> getAndObserve(String key, Class<T> classOfT, T defaultValue,
+      int bufferCapacity) {
+    return getAndObserve(key, TypeToken.fromClass(classOfT), defaultValue, bufferCapacity);
+  }
+
+  /**
+   * Gets value from SharedPreferences with a given key and type token
+   * as a RxJava Flowable, which can be subscribed.
+   * It emits values in the same way as {@link #getAndObserve(String, TypeToken, Object)},
+   * but it buffers at most a given number of values for slow subscribers.
+   * When the buffer is full, the oldest values are dropped.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param bufferCapacity maximal number of values buffered for slow subscribers
+   * @param <T> return type of the preference (e.g. String)
+   * @return Flowable value from SharedPreferences associated with given key or default value
+   */
+  public <T> Flowable<T> getAndObserve(String key, TypeToken<T> typeTokenOfT,
+      T defaultValue, int bufferCapacity) {
+    checkBufferCapacity(bufferCapacity);
+    return bufferLatest(getAndObserve(key, typeTokenOfT, defaultValue)
+        .toFlowable(BackpressureStrategy.MISSING), bufferCapacity);
+  }
+
+  private static void checkBufferCapacity(int bufferCapacity) {
+    if (bufferCapacity <= 0) {
+      throw new IllegalArgumentException("bufferCapacity <= 0");
+    }
+  }
+
+  private static <T> Flowable<T> bufferLatest(Flowable<T> flowable, int bufferCapacity) {
+    return flowable.onBackpressureBuffer(bufferCapacity, null,
+        BackpressureOverflowStrategy.DROP_OLDEST);
+  }
+
+  private Flowable<String> observeKey(final String key, BackpressureStrategy strategy) {
+    return Flowable.create(new FlowableOnSubscribe<String>() {
+      @Override
+      public void subscribe(final @io.reactivex.annotations.NonNull FlowableEmitter<String> e) {
+        final FlowableOnChangeListener onChangeListener = new FlowableOnChangeListener(e);
+        changeDispatcher.addListener(key, onChangeListener);
+        e.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() {
+            changeDispatcher.removeListener(key, onChangeListener);
+          }
+        });
+      }
+    }, strategy);
+  }
+
+  /**
+   * Puts value to the SharedPreferences.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   */
+  public <T> void put(@NonNull String key, @NonNull T value) {
+    Preconditions.checkNotNull(value, VALUE_IS_NULL);
+    put(key, value, TypeToken.fromValue(value));
+  }
+
+  /**
+   * Puts value to the SharedPreferences.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<> {})
+   */
+  public <T> void put(@NonNull String key, @NonNull T value, @NonNull TypeToken<T> typeTokenOfT) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(value, VALUE_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+
+    if (write(editor, key, value, typeTokenOfT, false)) {
+      applyChange(key);
+    }
+  }
+
+  /**
+   * Puts value to the SharedPreferences only if it's different than the stored one.
+   * Primitives and Strings are compared with stored values directly and other values
+   * are compared in their stored form (e.g. JSON), so they aren't decoded.
+   * When value is the same, nothing is written and observers aren't notified.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @return true if value was written and false if the same value was already stored
+   */
+  public <T> boolean putIfChanged(@NonNull String key, @NonNull T value) {
+    Preconditions.checkNotNull(value, VALUE_IS_NULL);
+    return putIfChanged(key, value, TypeToken.fromValue(value));
+  }
+
+  /**
+   * Puts value to the SharedPreferences only if it's different than the stored one.
+   * When value is the same, nothing is written and observers aren't notified.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<> {})
+   * @return true if value was written and false if the same value was already stored
+   */
+  public <T> boolean putIfChanged(@NonNull String key, @NonNull T value,
+      @NonNull TypeToken<T> typeTokenOfT) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(value, VALUE_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+
+    Accessor<T> accessor = getAccessor(value.getClass());
+    boolean written = write(editor, key, value, accessor, typeTokenOfT.getType(), true, false);
+    if (written) {
+      applyChange(key);
+    }
+    return written;
+  }
+
+  /**
+   * Puts boolean value to the SharedPreferences without boxing it.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   */
+  public void putBoolean(@NonNull String key, boolean value) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    if (skipUnchangedWrites && isStored(key, value)) {
+      return;
+    }
+    SharedPreferences.Editor keyEditor = keyEditor(key);
+    keyEditor.putBoolean(key, value);
+    applyChange(key, keyEditor);
+  }
+
+  /**
+   * Puts int value to the SharedPreferences without boxing it.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   */
+  public void putInt(@NonNull String key, int value) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    if (skipUnchangedWrites && isStored(key, value)) {
+      return;
+    }
+    SharedPreferences.Editor keyEditor = keyEditor(key);
+    keyEditor.putInt(key, value);
+    applyChange(key, keyEditor);
+  }
+
+  /**
+   * Puts long value to the SharedPreferences without boxing it.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   */
+  public void putLong(@NonNull String key, long value) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    if (skipUnchangedWrites && isStored(key, value)) {
+      return;
+    }
+    SharedPreferences.Editor keyEditor = keyEditor(key);
+    keyEditor.putLong(key, value);
+    applyChange(key, keyEditor);
+  }
+
+  /**
+   * Puts float value to the SharedPreferences without boxing it.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   */
+  public void putFloat(@NonNull String key, float value) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    if (skipUnchangedWrites && isStored(key, value)) {
+      return;
+    }
+    SharedPreferences.Editor keyEditor = keyEditor(key);
+    keyEditor.putFloat(key, value);
+    applyChange(key, keyEditor);
+  }
+
+  /**
+   * Puts double value to the SharedPreferences without boxing it.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   */
+  public void putDouble(@NonNull String key, double value) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    if (skipUnchangedWrites && isStored(key, value)) {
+      return;
+    }
+    SharedPreferences.Editor keyEditor = keyEditor(key);
+    doubleAccessor.putDouble(keyEditor, key, value);
+    applyChange(key, keyEditor);
+  }
+
+  /**
+   * Creates a handle of the preference with a given key and type.
+   * Handle resolves the way of storing the value only once,
+   * so it can be kept (e.g. in a static field) and used for frequent reads and writes.
+   * <p/>
+   * Example:
+   * <pre>
+   *  Preference&lt;Integer&gt; counter = prefser.preference("counter", Integer.class, 0);
+   *  counter.set(counter.get() + 1);
+   * </pre>
+   *
+   * @param key key of the preference
+   * @param classOfT class of T (e.g. {@code String.class})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param <T> type of the preference (e.g. String)
+   * @return handle of the preference
+   */
+  public <T> Preference<T> preference(@NonNull String key, @NonNull Class<T> classOfT,
+      T defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(classOfT, CLASS_OF_T_IS_NULL);
+    return preference(key, TypeToken.fromClass(classOfT), defaultValue);
+  }
+
+  /**
+   * Creates a handle of the preference with a given key and type token.
+   * Handle resolves the way of storing the value only once,
+   * so it can be kept (e.g. in a static field) and used for frequent reads and writes.
+   *
+   * @param key key of the preference
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<List<String>> {})
+   * @param defaultValue default value of the preference (e.g. "" or "undefined")
+   * @param <T> type of the preference (e.g. String)
+   * @return handle of the preference
+   */
+  public <T> Preference<T> preference(@NonNull String key, @NonNull TypeToken<T> typeTokenOfT,
+      T defaultValue) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    Type typeOfT = typeTokenOfT.getType();
+    Accessor<T> accessor = getAccessor(typeOfT);
+    return new Preference<>(this, key, typeOfT, accessor, defaultValue);
+  }
+
+  /**
+   * Creates a transaction, which buffers many puts and removals
+   * and writes all of them to the SharedPreferences at once.
+   * Listeners of the SharedPreferences are notified after the transaction is applied.
+   * <p/>
+   * Example:
+   * <pre>
+   *  prefser.edit()
+   *    .put("key", value)
+   *    .put("anotherKey", anotherValue)
+   *    .remove("oldKey")
+   *    .apply();
+   * </pre>
+   *
+   * @return new Transaction object
+   */
+  @SuppressLint("CommitPrefEdits") public Transaction edit() {
+    return new Transaction(this, preferences.edit());
+  }
+
+  /**
+   * Writes value to the editor without applying it.
+   *
+   * @param editor editor of the SharedPreferences
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @param typeTokenOfT type token of T
+   * @param overwrite true if the editor already clears, removes or writes this key,
+   * so the stored value can't be reused while writing
+   * @return true if value was written and false if it was skipped, because it didn't change
+   */
+  <T> boolean write(SharedPreferences.Editor editor, String key, T value,
+      TypeToken<T> typeTokenOfT, boolean overwrite) {
+    Accessor<T> accessor = getAccessor(value.getClass());
+    // value can't be skipped, when the editor doesn't keep the stored one
+    return write(editor, key, value, accessor, typeTokenOfT.getType(),
+        skipUnchangedWrites && !overwrite, overwrite);
+  }
+
+  /**
+   * Puts value to the SharedPreferences with already resolved accessor.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @param accessor accessor of the value or null if value should be stored as JSON
+   * @param typeOfT type of the value
+   */
+  <T> void put(String key, T value, Accessor<T> accessor, Type typeOfT) {
+    if (write(editor, key, value, accessor, typeOfT, skipUnchangedWrites, false)) {
+      applyChange(key);
+    }
+  }
+
+  private <T> boolean write(SharedPreferences.Editor editor, String key, T value,
+      Accessor<T> accessor, Type typeOfT, boolean skipUnchanged, boolean overwrite) {
+    if (accessor == null) {
+      String encodedValue = encode(value, typeOfT);
+      if (skipUnchanged && isStored(key, encodedValue)) {
+        return false;
+      }
+      writeString(editor, key, encodedValue, overwrite);
+      invalidateDecodedValue(key);
+      return true;
+    }
+
+    if (skipUnchanged && isStored(key, value, accessor)) {
+      return false;
+    }
+    if (keyIndex.hasChunks(key)) {
+      SharedPreferences.Editor chunksEditor = chunksEditor(editor);
+      accessor.put(chunksEditor, key, value);
+      removeChunks(chunksEditor, key);
+      applyChunks(chunksEditor, editor);
+    } else {
+      accessor.put(editor, key, value);
+    }
+    return true;
+  }
+
+  /*
+   * Methods below check if a given value is already stored. Value stored
+   * with a different type is reported as changed, so it's always overwritten.
+   */
+
+  private <T> boolean isStored(String key, T value, Accessor<T> accessor) {
+    try {
+      return preferences.contains(key) && value.equals(accessor.get(key, value));
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private boolean isStored(String key, String encodedValue) {
+    try {
+      String storedValue = preferences.getString(key, null);
+      if (storedValue == null) {
+        return false;
+      }
+      // header contains hash of the whole value, so chunks don't have to be read
+      return chunkSize > 0 && encodedValue.length() > chunkSize
+          ? ChunkedValues.isHeaderOf(storedValue, encodedValue, chunkSize)
+          : storedValue.equals(encodedValue);
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private boolean isStored(String key, boolean value) {
+    try {
+      return preferences.contains(key) && preferences.getBoolean(key, value) == value;
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private boolean isStored(String key, int value) {
+    try {
+      return preferences.contains(key) && preferences.getInt(key, value) == value;
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private boolean isStored(String key, long value) {
+    try {
+      return preferences.contains(key) && preferences.getLong(key, value) == value;
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private boolean isStored(String key, float value) {
+    try {
+      return preferences.contains(key)
+          && Float.compare(preferences.getFloat(key, value), value) == 0;
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private boolean isStored(String key, double value) {
+    try {
+      return preferences.contains(key)
+          && Double.compare(doubleAccessor.getDouble(key, value), value) == 0;
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  private void writeString(SharedPreferences.Editor editor, String key, String value,
+      boolean overwrite) {
+    boolean chunked = chunkSize > 0 && value.length() > chunkSize;
+    if (!chunked && !keyIndex.hasChunks(key)) {
+      editor.putString(key, value);
+      return;
+    }
+
+    SharedPreferences.Editor chunksEditor = chunksEditor(editor);
+    if (chunked) {
+      ChunkedValues.write(preferences, chunksEditor, key, value, chunkSize, overwrite);
+      keyIndex.onChunksWritten(key);
+    } else {
+      chunksEditor.putString(key, value);
+      removeChunks(chunksEditor, key);
+    }
+    applyChunks(chunksEditor, editor);
+  }
+
+  /**
+   * Returns editor, which writes a key together with its chunks. Header and chunks of a value
+   * have to be applied at once, but the shared editor is applied by puts of other keys too,
+   * which could store only some of them, so it's replaced with an own editor.
+   * Editors of transactions are applied at once anyway.
+   */
+  private SharedPreferences.Editor chunksEditor(SharedPreferences.Editor editor) {
+    return editor == this.editor ? preferences.edit() : editor;
+  }
+
+  private void applyChunks(SharedPreferences.Editor chunksEditor,
+      SharedPreferences.Editor editor) {
+    if (chunksEditor != editor) {
+      chunksEditor.apply();
+    }
+  }
+
+  /**
+   * Returns editor, which puts a primitive value. Value of a key, which has chunks,
+   * is put with an own editor, which removes the chunks too, see applyChange(key, keyEditor).
+   */
+  private SharedPreferences.Editor keyEditor(String key) {
+    return keyIndex.hasChunks(key) ? preferences.edit() : editor;
+  }
+
+  /**
+   * Removes chunks of a value, which was stored in chunks before it was overwritten,
+   * even if it's overwritten with a value of other type or chunks are disabled now.
+   */
+  private void removeChunks(SharedPreferences.Editor editor, String key) {
+    ChunkedValues.removeChunks(preferences, editor, key, 0);
+    keyIndex.onChunksRemoved(key);
+  }
+
+  private <T> String encode(T value, Type typeOfT) {
+    BinaryCodec<T> binaryCodec = getBinaryCodec(typeOfT);
+    String encodedValue = binaryCodec != null
+        ? BinaryValues.encode(binaryCodec.encode(value))
+        : String.valueOf(toJson(value, typeOfT));
+
+    if (compressionThreshold > 0 && encodedValue.length() >= compressionThreshold) {
+      String compressedValue = CompressedValues.compress(encodedValue);
+      if (compressedValue.length() < encodedValue.length()) {
+        return compressedValue;
+      }
+    }
+    return encodedValue;
+  }
+
+  private <T> String toJson(T value, Type typeOfT) {
+    if (jsonConverter instanceof StreamingJsonConverter) {
+      return jsonBuffer.toJson((StreamingJsonConverter) jsonConverter, value, typeOfT);
+    }
+    return jsonConverter.toJson(value, typeOfT);
+  }
+
+  /**
+   * Looks up accessor for a given type with a single hash lookup.
+   * Class keys use identity equality, so parameterized types never match an accessor.
+   *
+   * @param typeOfT type of the value
+   * @param <T> type of the value
+   * @return accessor for a given type or null if value should be serialized to JSON
+   */
+  @SuppressWarnings("unchecked") <T> Accessor<T> getAccessor(Type typeOfT) {
+    return (Accessor<T>) accessorProvider.getAccessors().get(typeOfT);
+  }
+
+  /**
+   * Looks up binary codec registered in settings for a given type.
+   *
+   * @param typeOfT type of the value
+   * @param <T> type of the value
+   * @return binary codec of a given type or null if value should be stored as JSON
+   */
+  @SuppressWarnings("unchecked") private <T> BinaryCodec<T> getBinaryCodec(Type typeOfT) {
+    return binaryCodecs.isEmpty() ? null : (BinaryCodec<T>) binaryCodecs.get(typeOfT);
+  }
+
+  /**
+   * Removes value defined by a given key.
+   *
+   * @param key key of the preference to be removed
+   */
+  public void remove(@NonNull String key) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    if (!contains(key)) {
+      return;
+    }
+
+    remove(editor, key);
+    applyChange(key);
+    invalidateDecodedValue(key);
+  }
+
+  /**
+   * Removes value and its chunks in the editor without applying it.
+   *
+   * @param editor editor of the SharedPreferences
+   * @param key key of the preference to be removed
+   */
+  void remove(SharedPreferences.Editor editor, String key) {
+    if (!keyIndex.hasChunks(key)) {
+      editor.remove(key);
+      return;
+    }
+
+    SharedPreferences.Editor chunksEditor = chunksEditor(editor);
+    chunksEditor.remove(key);
+    removeChunks(chunksEditor, key);
+    applyChunks(chunksEditor, editor);
+  }
+
+  /**
+   * Clears all SharedPreferences.
+   */
+  public void clear() {
+    if (isEmpty()) {
+      return;
+    }
+
+    editor.clear().apply();
+    keyIndex.onClear();
+    changeDispatcher.onWrite(null);
+    invalidateDecodedValue(null);
+  }
+
+  /**
+   * Returns number of all items stored in SharedPreferences.
+   * All keys are read only once and then they're tracked by Prefser,
+   * so this method doesn't copy all preferences.
+   * Note: SharedPreferences doesn't notify about clearing them before Android 11,
+   * so use {@link #clear()} instead of clearing them directly.
+   *
+   * @return number of all stored items
+   */
+  public int size() {
+    return keyIndex.size();
+  }
+
+  /**
+   * Checks if SharedPreferences don't contain any items.
+   *
+   * @return true if there are no stored items
+   */
+  public boolean isEmpty() {
+    return keyIndex.isEmpty();
+  }
+
+  /**
+   * Updates keys stored in SharedPreferences after transaction was written.
+   *
+   * @param changedKeys keys put or removed in the transaction
+   * @param cleared true if preferences were cleared in the transaction
+   */
+  void onTransactionWritten(Collection<String> changedKeys, boolean cleared) {
+    keyIndex.onWrite(changedKeys, cleared);
+    if (cleared) {
+      changeDispatcher.onWrite(null);
+    }
+    for (String key : changedKeys) {
+      changeDispatcher.onWrite(key);
+    }
+  }
+
+  /**
+   * Returns version of a value stored under a given key. Version increases every time
+   * the value is written with Prefser or changed in SharedPreferences, so comparing it
+   * with a version read earlier tells, if the value could change since then without reading it.
+   * Version can increase also without a real change (e.g. when the same value is written
+   * again), but it never stays the same, when the value changes.
+   * Changes made outside of Prefser are counted since the first call of this method
+   * or {@link #globalVersion()}.
+   *
+   * @param key key of the preference
+   * @return current version of the value
+   */
+  public long version(@NonNull String key) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    changeDispatcher.trackVersions();
+    return changeDispatcher.version(key);
+  }
+
+  /**
+   * Returns version of all values stored in SharedPreferences.
+   * It increases every time any value is written or changed in the same way
+   * as {@link #version(String)} and it's never lower than version of any key.
+   *
+   * @return current version of all values
+   */
+  public long globalVersion() {
+    changeDispatcher.trackVersions();
+    return changeDispatcher.globalVersion();
+  }
+
+  private void applyChange(String key) {
+    editor.apply();
+    keyIndex.onWrite(key);
+    changeDispatcher.onWrite(key);
+  }
+
+  private void applyChange(String key, SharedPreferences.Editor keyEditor) {
+    if (keyEditor != editor) {
+      removeChunks(keyEditor, key);
+      keyEditor.apply();
+    }
+    applyChange(key);
+  }
+
+  /**
+   * Compares values read with readStoredValue(...), so chunked value written again
+   * is the same, even though its header changed.
+   */
+  private static boolean isSameStoredValue(Object storedValue, Object otherValue) {
+    if (storedValue instanceof String && otherValue instanceof String) {
+      return ChunkedValues.isSameValue((String) storedValue, (String) otherValue);
+    }
+    return storedValue == null ? otherValue == null : storedValue.equals(otherValue);
+  }
+
+  private void invalidateDecodedValue(String key) {
+    if (decodedValueCache != null) {
+      decodedValueCache.invalidate(key);
+    }
+  }
+
+  /**
+   * Listener of a single subscriber of snapshotAndObserve(...).
+   */
+  private class SnapshotListener<T> implements ChangeDispatcher.Listener, Runnable {
+    private final ObservableEmitter<T> emitter;
+    private final String key;
+    private final Type typeOfT;
+    private final T defaultValue;
+    private final Scheduler readScheduler;
+    private boolean emitted;
+    private long lastVersion;
+    private Object lastStoredValue;
+
+    SnapshotListener(ObservableEmitter<T> emitter, String key, Type typeOfT, T defaultValue,
+        Scheduler readScheduler) {
+      this.emitter = emitter;
+      this.key = key;
+      this.typeOfT = typeOfT;
+      this.defaultValue = defaultValue;
+      this.readScheduler = readScheduler;
+    }
+
+    @Override public void onChange(String changedKey) {
+      if (readScheduler == null) {
+        run();
+      } else {
+        readScheduler.scheduleDirect(this);
+      }
+    }
+
+    @Override public synchronized void run() {
+      long version = changeDispatcher.version(key); // read before the value, so no change is lost
+      if (emitter.isDisposed() || (emitted && version <= lastVersion)) {
+        return;
+      }
+
+      Object storedValue = readStoredValue(key, typeOfT, defaultValue);
+      lastVersion = version;
+      if (emitted && isSameStoredValue(storedValue, lastStoredValue)) {
+        return;
+      }
+
+      emitted = true;
+      lastStoredValue = storedValue;
+      emitter.onNext(decodeStoredValue(key, typeOfT, storedValue, defaultValue));
+    }
+  }
+
+  /**
+   * Listener of a single subscriber of observeDistinct(...).
+   */
+  private class DistinctListener<T> implements ChangeDispatcher.Listener {
+    private final ObservableEmitter<T> emitter;
+    private final String key;
+    private final Type typeOfT;
+    private final T defaultValue;
+    private boolean seenValueRead;
+    private boolean changedWhileReading;
+    private Object lastStoredValue;
+
+    DistinctListener(ObservableEmitter<T> emitter, String key, Type typeOfT, T defaultValue) {
+      this.emitter = emitter;
+      this.key = key;
+      this.typeOfT = typeOfT;
+      this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Reads value seen by the subscriber before observing changes, which isn't emitted.
+     */
+    synchronized void readSeenValue() {
+      lastStoredValue = readStoredValue(key, typeOfT, defaultValue);
+      seenValueRead = true;
+      if (changedWhileReading) { // change could be written after the value was read
+        onChange(key);
+      }
+    }
+
+    @Override public synchronized void onChange(String changedKey) {
+      if (!seenValueRead) {
+        changedWhileReading = true;
+        return;
+      }
+
+      Object storedValue = readStoredValue(key, typeOfT, defaultValue);
+      if (emitter.isDisposed() || isSameStoredValue(storedValue, lastStoredValue)) {
+        return;
+      }
+
+      lastStoredValue = storedValue;
+      emitter.onNext(decodeStoredValue(key, typeOfT, storedValue, defaultValue));
+    }
+  }
+
+  private static class OnChangeListener implements ChangeDispatcher.Listener {
+    private final ObservableEmitter<? super String> emitter;
+
+    OnChangeListener(ObservableEmitter<? super String> emitter) {
+      this.emitter = emitter;
+    }
+
+    @Override public void onChange(String key) {
+      // SharedPreferences notify about clearing them with null key since Android 11,
+      // which can't be emitted by RxJava
+      if (key != null && !ChunkedValues.isChunkKey(key) && !emitter.isDisposed()) {
+        emitter.onNext(key);
+      }
+    }
+  }
+
+  private static class FlowableOnChangeListener implements ChangeDispatcher.Listener {
+    private final FlowableEmitter<? super String> emitter;
+
+    FlowableOnChangeListener(FlowableEmitter<? super String> emitter) {
       this.emitter = emitter;
     }
 
-    @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-      if (!emitter.isDisposed()) {
+    @Override public void onChange(String key) {
+      // see OnChangeListener
+      if (key != null && !ChunkedValues.isChunkKey(key) && !emitter.isCancelled()) {
         emitter.onNext(key);
       }
     }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface, which declares preferences with {@link PreferenceKey} annotation.
+ * Annotation processor from prefser-compiler generates its implementation named
+ * {@code <InterfaceName>_Prefser}, which reads and writes values with Prefser
+ * without looking up their types at runtime.
+ * <pre>
+ *  {@literal @}PrefserPreferences
+ *  public interface AppPreferences {
+ *    {@literal @}PreferenceKey(value = "counter", defaultValue = "0") int counter();
+ *    {@literal @}PreferenceKey("counter") void counter(int value);
+ *    {@literal @}PreferenceKey("user") Preference&lt;User&gt; user();
+ *  }
+ *
+ *  AppPreferences preferences = new AppPreferences_Prefser(prefser);
+ * </pre>
+ */
+@Documented @Retention(RetentionPolicy.CLASS) @Target(ElementType.TYPE)
+public @interface PrefserPreferences {
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contains optional settings of the Prefser object.
+ * Settings can be created with default values via {@link #create()} method
+ * or customized via {@link #builder()} method.
+ */
+public final class PrefserSettings {
+  private final boolean cacheDecodedValues;
+  private final boolean storeDoublesAsLongBits;
+  private final long writeBehindIntervalMillis;
+  private final Scheduler writeBehindScheduler;
+  private final Map<Type, BinaryCodec<?>> binaryCodecs;
+  private final int compressionThreshold;
+  private final int chunkSize;
+  private final boolean skipUnchangedWrites;
+
+  private PrefserSettings(Builder builder) {
+    this.cacheDecodedValues = builder.cacheDecodedValues;
+    this.storeDoublesAsLongBits = builder.storeDoublesAsLongBits;
+    this.writeBehindIntervalMillis = builder.writeBehindIntervalMillis;
+    this.writeBehindScheduler = builder.writeBehindScheduler;
+    this.binaryCodecs = Collections.unmodifiableMap(new HashMap<>(builder.binaryCodecs));
+    this.compressionThreshold = builder.compressionThreshold;
+    this.chunkSize = builder.chunkSize;
+    this.skipUnchangedWrites = builder.skipUnchangedWrites;
+  }
+
+  /**
+   * @return settings with default values
+   */
+  public static PrefserSettings create() {
+    return builder().build();
+  }
+
+  /**
+   * Creates builder object
+   *
+   * @return Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return true if objects decoded from JSON should be cached
+   */
+  public boolean cacheDecodedValues() {
+    return cacheDecodedValues;
+  }
+
+  /**
+   * @return true if double values should be stored as raw long bits instead of Strings
+   */
+  public boolean storeDoublesAsLongBits() {
+    return storeDoublesAsLongBits;
+  }
+
+  /**
+   * @return interval of flushing pending values in milliseconds or 0 if values are written
+   * immediately
+   */
+  public long writeBehindIntervalMillis() {
+    return writeBehindIntervalMillis;
+  }
+
+  /**
+   * @return scheduler, on which pending values are flushed
+   */
+  public Scheduler writeBehindScheduler() {
+    return writeBehindScheduler;
+  }
+
+  /**
+   * @return binary codecs of values keyed by their types
+   */
+  public Map<Type, BinaryCodec<?>> binaryCodecs() {
+    return binaryCodecs;
+  }
+
+  /**
+   * @return minimal length of stored value, which is compressed or 0 if values aren't compressed
+   */
+  public int compressionThreshold() {
+    return compressionThreshold;
+  }
+
+  /**
+   * @return maximal length of a single stored String or 0 if values aren't split into chunks
+   */
+  public int chunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return true if values equal to the stored ones shouldn't be written again
+   */
+  public boolean skipUnchangedWrites() {
+    return skipUnchangedWrites;
+  }
+
+  public final static class Builder {
+    private boolean cacheDecodedValues = false;
+    private boolean storeDoublesAsLongBits = false;
+    private long writeBehindIntervalMillis = 0;
+    private Scheduler writeBehindScheduler = Schedulers.io();
+    private final Map<Type, BinaryCodec<?>> binaryCodecs = new HashMap<>();
+    private int compressionThreshold = 0;
+    private int chunkSize = 0;
+    private boolean skipUnchangedWrites = false;
+
+    private Builder() {
+    }
+
+    /**
+     * Enables cache of objects decoded from JSON (custom objects, lists, arrays, etc.).
+     * When enabled, reading the same stored value many times decodes it only once.
+     * Cached objects are shared between all readers, so they shouldn't be modified.
+     * Cache is disabled by default.
+     *
+     * @param cacheDecodedValues true if decoded objects should be cached
+     * @return Builder
+     */
+    public Builder cacheDecodedValues(boolean cacheDecodedValues) {
+      this.cacheDecodedValues = cacheDecodedValues;
+      return this;
+    }
+
+    /**
+     * Enables storing double values as raw long bits instead of Strings.
+     * Such values are read without allocating and parsing a String.
+     * Doubles stored as Strings are still read correctly and they're stored as long bits
+     * when they're written again. Doubles are stored as Strings by default,
+     * so they can be read by other clients of SharedPreferences (e.g. PreferenceActivity).
+     *
+     * @param storeDoublesAsLongBits true if doubles should be stored as long bits
+     * @return Builder
+     */
+    public Builder storeDoublesAsLongBits(boolean storeDoublesAsLongBits) {
+      this.storeDoublesAsLongBits = storeDoublesAsLongBits;
+      return this;
+    }
+
+    /**
+     * Enables write-behind mode. Values put via Prefser are kept in a pending map
+     * and they're written to SharedPreferences in one batch after a given interval.
+     * When the same key is written many times before the flush, only the last value is written.
+     * Pending values are returned by Prefser immediately, but observers are notified
+     * about them when they're flushed. Pending values are lost, when the process is killed
+     * before the flush, so call {@link Prefser#flush()} e.g. in onPause() of the Activity.
+     * Values are written immediately by default.
+     *
+     * @param interval interval of flushing pending values or 0 to write values immediately
+     * @param timeUnit unit of the interval
+     * @return Builder
+     */
+    public Builder writeBehind(long interval, @NonNull TimeUnit timeUnit) {
+      Preconditions.checkNotNull(timeUnit, "timeUnit == null");
+      if (interval < 0) {
+        throw new IllegalArgumentException("interval < 0");
+      }
+      this.writeBehindIntervalMillis = timeUnit.toMillis(interval);
+      return this;
+    }
+
+    /**
+     * Sets scheduler, on which pending values are flushed in write-behind mode.
+     * Schedulers.io() is used by default.
+     *
+     * @param scheduler scheduler of the flush
+     * @return Builder
+     */
+    public Builder writeBehindScheduler(@NonNull Scheduler scheduler) {
+      Preconditions.checkNotNull(scheduler, "scheduler == null");
+      this.writeBehindScheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * Registers binary codec of values of a given class. Such values are stored
+     * as compact bytes encoded with Base64 instead of JSON. Values stored as JSON
+     * before the codec was registered are still read with JsonConverter.
+     *
+     * @param classOfT class of T (e.g. {@code int[].class})
+     * @param codec binary codec of T
+     * @param <T> type of the value
+     * @return Builder
+     */
+    public <T> Builder binaryCodec(@NonNull Class<T> classOfT, @NonNull BinaryCodec<T> codec) {
+      Preconditions.checkNotNull(classOfT, "classOfT == null");
+      return binaryCodec(TypeToken.fromClass(classOfT), codec);
+    }
+
+    /**
+     * Registers binary codec of values of a given type. Values are stored in binary form
+     * only when they're put with the same type token (or class of the value is the same).
+     *
+     * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<Map<String, String>>() {}})
+     * @param codec binary codec of T
+     * @param <T> type of the value
+     * @return Builder
+     */
+    public <T> Builder binaryCodec(@NonNull TypeToken<T> typeTokenOfT,
+        @NonNull BinaryCodec<T> codec) {
+      Preconditions.checkNotNull(typeTokenOfT, "typeTokenOfT == null");
+      Preconditions.checkNotNull(codec, "codec == null");
+      binaryCodecs.put(typeTokenOfT.getType(), codec);
+      return this;
+    }
+
+    /**
+     * Registers codecs from {@link BinaryCodecs} for primitive arrays
+     * and maps with String keys and String, Integer, Long or Double values.
+     * Codecs registered before for the same types are replaced.
+     *
+     * @return Builder
+     */
+    public Builder defaultBinaryCodecs() {
+      binaryCodec(byte[].class, BinaryCodecs.BYTE_ARRAY);
+      binaryCodec(boolean[].class, BinaryCodecs.BOOLEAN_ARRAY);
+      binaryCodec(int[].class, BinaryCodecs.INT_ARRAY);
+      binaryCodec(long[].class, BinaryCodecs.LONG_ARRAY);
+      binaryCodec(float[].class, BinaryCodecs.FLOAT_ARRAY);
+      binaryCodec(double[].class, BinaryCodecs.DOUBLE_ARRAY);
+      binaryCodec(new TypeToken<Map<String, String>>() {
+      }, BinaryCodecs.STRING_MAP);
+      binaryCodec(new TypeToken<Map<String, Integer>>() {
+      }, BinaryCodecs.INT_MAP);
+      binaryCodec(new TypeToken<Map<String, Long>>() {
+      }, BinaryCodecs.LONG_MAP);
+      binaryCodec(new TypeToken<Map<String, Double>>() {
+      }, BinaryCodecs.DOUBLE_MAP);
+      return this;
+    }
+
+    /**
+     * Enables compression of long values stored as JSON or in binary form.
+     * Values, which have at least a given number of characters, are compressed with Deflater,
+     * so they take less memory and disk space and SharedPreferences are written faster.
+     * Compressed values are recognized while reading, so values stored earlier without
+     * compression are still read correctly. Values aren't compressed by default.
+     *
+     * @param minLength minimal length of compressed value (e.g. 1024) or 0 to disable compression
+     * @return Builder
+     */
+    public Builder compressionThreshold(int minLength) {
+      if (minLength < 0) {
+        throw new IllegalArgumentException("minLength < 0");
+      }
+      this.compressionThreshold = minLength;
+      return this;
+    }
+
+    /**
+     * Enables splitting long values stored as JSON or in binary form into chunks
+     * stored under separate keys, so very large values (e.g. multi-megabyte caches)
+     * aren't kept as a single huge String. When such value is put again, only chunks,
+     * which changed, are written. Chunks are applied after compression and they're
+     * read transparently by get(...) and observe(...) regardless of the settings.
+     * Values aren't split by default.
+     *
+     * @param length maximal length of a chunk (at least 2) or 0 to disable chunks
+     * @return Builder
+     */
+    public Builder chunkSize(int length) {
+      if (length < 0 || length == 1) {
+        throw new IllegalArgumentException("length has to be 0 or at least 2");
+      }
+      this.chunkSize = length;
+      return this;
+    }
+
+    /**
+     * Enables skipping writes of values, which are equal to the stored ones.
+     * When enabled, all put methods of Prefser, Transaction and Preference
+     * behave like {@link Prefser#putIfChanged(String, Object)}, so writing the same value
+     * again doesn't schedule a disk write nor notify observers.
+     * Values are always written by default.
+     *
+     * @param skipUnchangedWrites true if unchanged values shouldn't be written
+     * @return Builder
+     */
+    public Builder skipUnchangedWrites(boolean skipUnchangedWrites) {
+      this.skipUnchangedWrites = skipUnchangedWrites;
+      return this;
+    }
+
+    public PrefserSettings build() {
+      return new PrefserSettings(this);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+/**
+ * JsonConverter, which can write JSON to a Writer without creating intermediate Strings.
+ * When Prefser uses such converter, it writes JSON to a reusable buffer instead of
+ * a new String for every value. Values are read with JsonConverter#fromJson(String, Type),
+ * because SharedPreferences returns them as Strings anyway.
+ */
+public interface StreamingJsonConverter extends JsonConverter {
+  <T> void toJson(T object, Type typeOfT, Writer writer);
+}
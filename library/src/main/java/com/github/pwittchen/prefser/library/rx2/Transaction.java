@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import androidx.annotation.NonNull;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Transaction buffers values put and removed with Prefser
+ * and writes them to the SharedPreferences with a single apply() or commit().
+ * Transaction is created with {@link Prefser#edit()} method.
+ */
+public final class Transaction {
+  private static final String KEY_IS_NULL = "key == null";
+  private static final String VALUE_IS_NULL = "value == null";
+  private static final String TYPE_TOKEN_OF_T_IS_NULL = "typeTokenOfT == null";
+
+  private final Prefser prefser;
+  private final SharedPreferences.Editor editor;
+  private final Set<String> changedKeys = new HashSet<>();
+  private boolean cleared;
+
+  Transaction(Prefser prefser, SharedPreferences.Editor editor) {
+    Preconditions.checkNotNull(prefser, "prefser == null");
+    Preconditions.checkNotNull(editor, "editor == null");
+    this.prefser = prefser;
+    this.editor = editor;
+  }
+
+  /**
+   * Puts value to the transaction.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @return this transaction
+   */
+  public <T> Transaction put(@NonNull String key, @NonNull T value) {
+    Preconditions.checkNotNull(value, VALUE_IS_NULL);
+    return put(key, value, TypeToken.fromValue(value));
+  }
+
+  /**
+   * Puts value to the transaction.
+   *
+   * @param key key under which value will be stored
+   * @param value value to be stored
+   * @param typeTokenOfT type token of T (e.g. {@code new TypeToken<> {})
+   * @return this transaction
+   */
+  public <T> Transaction put(@NonNull String key, @NonNull T value,
+      @NonNull TypeToken<T> typeTokenOfT) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    Preconditions.checkNotNull(value, VALUE_IS_NULL);
+    Preconditions.checkNotNull(typeTokenOfT, TYPE_TOKEN_OF_T_IS_NULL);
+    // stored value can't be reused, when it's cleared, removed or written in this transaction
+    boolean overwrite = cleared || changedKeys.contains(key);
+    if (prefser.write(editor, key, value, typeTokenOfT, overwrite)) {
+      changedKeys.add(key);
+    }
+    return this;
+  }
+
+  /**
+   * Removes value defined by a given key in the transaction.
+   *
+   * @param key key of the preference to be removed
+   * @return this transaction
+   */
+  public Transaction remove(@NonNull String key) {
+    Preconditions.checkNotNull(key, KEY_IS_NULL);
+    prefser.remove(editor, key);
+    changedKeys.add(key);
+    return this;
+  }
+
+  /**
+   * Clears all SharedPreferences before values put in the transaction are written.
+   *
+   * @return this transaction
+   */
+  public Transaction clear() {
+    editor.clear();
+    cleared = true;
+    return this;
+  }
+
+  /**
+   * Writes all buffered changes asynchronously with a single SharedPreferences.Editor#apply().
+   */
+  public void apply() {
+    editor.apply();
+    onWritten();
+  }
+
+  /**
+   * Writes all buffered changes synchronously with a single SharedPreferences.Editor#commit().
+   *
+   * @return true if new values were successfully written to persistent storage
+   */
+  public boolean commit() {
+    boolean committed = editor.commit();
+    onWritten();
+    return committed;
+  }
+
+  private void onWritten() {
+    prefser.onTransactionWritten(changedKeys, cleared);
+    changedKeys.clear();
+    cleared = false;
+  }
+}
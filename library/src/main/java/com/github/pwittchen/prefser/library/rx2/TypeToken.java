@@ -17,9 +17,14 @@ package com.github.pwittchen.prefser.library.rx2;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 // Inspired by Gson's TypeToken
 public abstract class TypeToken<T> {
+  // type tokens created for classes are immutable, so they're created once and reused
+  private static final Map<Class<?>, TypeToken<?>> CLASS_TYPE_TOKENS = new ConcurrentHashMap<>();
+
   private final Type type;
 
   public TypeToken() {
@@ -39,14 +44,27 @@ public abstract class TypeToken<T> {
     this.type = classOfT;
   }
 
-  static <T> TypeToken<T> fromClass(Class<T> classForT) {
-    return new TypeToken<T>(classForT) {
-    };
+  @SuppressWarnings("unchecked") static <T> TypeToken<T> fromClass(Class<T> classForT) {
+    if (classForT == null) {
+      throw new NullPointerException("classOfT == null");
+    }
+
+    TypeToken<?> typeToken = CLASS_TYPE_TOKENS.get(classForT);
+
+    if (typeToken == null) {
+      typeToken = new TypeToken<T>(classForT) {
+      };
+      TypeToken<?> previous = CLASS_TYPE_TOKENS.putIfAbsent(classForT, typeToken);
+      if (previous != null) {
+        typeToken = previous;
+      }
+    }
+
+    return (TypeToken<T>) typeToken;
   }
 
-  static <T> TypeToken<T> fromValue(T value) {
-    return new TypeToken<T>(value.getClass()) {
-    };
+  @SuppressWarnings("unchecked") static <T> TypeToken<T> fromValue(T value) {
+    return (TypeToken<T>) fromClass(value.getClass());
   }
 
   public Type getType() {
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import io.reactivex.Scheduler;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator of SharedPreferences, which keeps applied changes in a pending map
+ * and writes them to decorated preferences in one batch after a given interval.
+ * Many changes of the same key written before the flush are collapsed into the last one.
+ * Pending values are visible to readers immediately, but listeners are notified
+ * by decorated preferences when pending values are flushed.
+ * commit() flushes all pending values immediately.
+ */
+final class WriteBehindPreferences implements SharedPreferences {
+  private static final Object REMOVED = new Object();
+
+  private final SharedPreferences preferences;
+  private final Scheduler scheduler;
+  private final long intervalMillis;
+  private final Map<String, Object> pending = new ConcurrentHashMap<>();
+  private final Runnable flushTask = new Runnable() {
+    @Override public void run() {
+      flush(false);
+    }
+  };
+  private volatile boolean pendingClear;
+  private boolean flushScheduled;
+
+  WriteBehindPreferences(SharedPreferences preferences, Scheduler scheduler, long intervalMillis) {
+    this.preferences = preferences;
+    this.scheduler = scheduler;
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Writes all pending values to decorated preferences.
+   *
+   * @param commit true if values should be written synchronously
+   * @return result of the commit or true if values were applied
+   */
+  synchronized boolean flush(boolean commit) {
+    flushScheduled = false;
+    if (pending.isEmpty() && !pendingClear) {
+      return true;
+    }
+
+    Editor editor = preferences.edit();
+    if (pendingClear) {
+      editor.clear();
+    }
+    for (Map.Entry<String, Object> entry : pending.entrySet()) {
+      write(editor, entry.getKey(), entry.getValue());
+    }
+
+    boolean result = true;
+    if (commit) {
+      result = editor.commit();
+    } else {
+      editor.apply();
+    }
+
+    // values are already visible in decorated preferences, so readers don't miss them
+    pendingClear = false;
+    pending.clear();
+    return result;
+  }
+
+  @Override public Map<String, ?> getAll() {
+    Map<String, Object> all = new HashMap<>();
+    if (!pendingClear) {
+      all.putAll(preferences.getAll());
+    }
+    for (Map.Entry<String, Object> entry : pending.entrySet()) {
+      if (entry.getValue() == REMOVED) {
+        all.remove(entry.getKey());
+      } else {
+        all.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return all;
+  }
+
+  @Override public String getString(String key, String defValue) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return pendingClear ? defValue : preferences.getString(key, defValue);
+    }
+    return value == REMOVED ? defValue : (String) value;
+  }
+
+  @SuppressWarnings("unchecked") @Override
+  public Set<String> getStringSet(String key, Set<String> defValues) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return pendingClear ? defValues : preferences.getStringSet(key, defValues);
+    }
+    return value == REMOVED ? defValues : (Set<String>) value;
+  }
+
+  @Override public int getInt(String key, int defValue) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return pendingClear ? defValue : preferences.getInt(key, defValue);
+    }
+    return value == REMOVED ? defValue : (Integer) value;
+  }
+
+  @Override public long getLong(String key, long defValue) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return pendingClear ? defValue : preferences.getLong(key, defValue);
+    }
+    return value == REMOVED ? defValue : (Long) value;
+  }
+
+  @Override public float getFloat(String key, float defValue) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return pendingClear ? defValue : preferences.getFloat(key, defValue);
+    }
+    return value == REMOVED ? defValue : (Float) value;
+  }
+
+  @Override public boolean getBoolean(String key, boolean defValue) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return pendingClear ? defValue : preferences.getBoolean(key, defValue);
+    }
+    return value == REMOVED ? defValue : (Boolean) value;
+  }
+
+  @Override public boolean contains(String key) {
+    Object value = pending.get(key);
+    if (value == null) {
+      return !pendingClear && preferences.contains(key);
+    }
+    return value != REMOVED;
+  }
+
+  @Override public Editor edit() {
+    return new WriteBehindEditor();
+  }
+
+  @Override public void registerOnSharedPreferenceChangeListener(
+      OnSharedPreferenceChangeListener listener) {
+    preferences.registerOnSharedPreferenceChangeListener(listener);
+  }
+
+  @Override public void unregisterOnSharedPreferenceChangeListener(
+      OnSharedPreferenceChangeListener listener) {
+    preferences.unregisterOnSharedPreferenceChangeListener(listener);
+  }
+
+  private synchronized void enqueue(Map<String, Object> modified, boolean clear) {
+    if (clear) {
+      pendingClear = true;
+      pending.clear();
+    }
+    pending.putAll(modified);
+
+    if (!flushScheduled) {
+      flushScheduled = true;
+      scheduler.scheduleDirect(flushTask, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void write(Editor editor, String key, Object value) {
+    if (value == REMOVED) {
+      editor.remove(key);
+    } else if (value instanceof Boolean) {
+      editor.putBoolean(key, (Boolean) value);
+    } else if (value instanceof Integer) {
+      editor.putInt(key, (Integer) value);
+    } else if (value instanceof Long) {
+      editor.putLong(key, (Long) value);
+    } else if (value instanceof Float) {
+      editor.putFloat(key, (Float) value);
+    } else if (value instanceof String) {
+      editor.putString(key, (String) value);
+    } else {
+      editor.putStringSet(key, (Set<String>) value);
+    }
+  }
+
+  private final class WriteBehindEditor implements Editor {
+    private final Map<String, Object> modified = new HashMap<>();
+    private boolean clear;
+
+    @Override public Editor putString(String key, String value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putStringSet(String key, Set<String> values) {
+      return put(key, values == null ? null : Collections.unmodifiableSet(new HashSet<>(values)));
+    }
+
+    @Override public Editor putInt(String key, int value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putLong(String key, long value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putFloat(String key, float value) {
+      return put(key, value);
+    }
+
+    @Override public Editor putBoolean(String key, boolean value) {
+      return put(key, value);
+    }
+
+    @Override public synchronized Editor remove(String key) {
+      modified.put(key, REMOVED);
+      return this;
+    }
+
+    @Override public synchronized Editor clear() {
+      clear = true;
+      return this;
+    }
+
+    @Override public boolean commit() {
+      apply();
+      return flush(true);
+    }
+
+    @Override public void apply() {
+      Map<String, Object> changes;
+      boolean clearValues;
+
+      synchronized (this) {
+        changes = new HashMap<>(modified);
+        clearValues = clear;
+        modified.clear();
+        clear = false;
+      }
+
+      enqueue(changes, clearValues);
+    }
+
+    private synchronized Editor put(String key, Object value) {
+      if (value == null) {
+        return remove(key);
+      }
+      modified.put(key, value);
+      return this;
+    }
+  }
+}
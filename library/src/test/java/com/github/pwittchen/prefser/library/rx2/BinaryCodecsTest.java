@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class BinaryCodecsTest {
+
+  @Test public void testShouldEncodeAndDecodeIntArray() {
+    // given
+    int[] value = { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE };
+
+    // when
+    byte[] bytes = BinaryCodecs.INT_ARRAY.encode(value);
+
+    // then
+    assertThat(BinaryCodecs.INT_ARRAY.decode(bytes)).isEqualTo(value);
+  }
+
+  @Test public void testShouldStoreSmallIntsInSingleBytes() {
+    // given
+    int[] value = { -2, -1, 0, 1, 2 };
+
+    // when
+    byte[] bytes = BinaryCodecs.INT_ARRAY.encode(value);
+
+    // then
+    assertThat(bytes).hasLength(1 + value.length); // length of the array and values
+  }
+
+  @Test public void testShouldEncodeAndDecodeLongArray() {
+    // given
+    long[] value = { Long.MIN_VALUE, -65, 64, Long.MAX_VALUE };
+
+    // when
+    byte[] bytes = BinaryCodecs.LONG_ARRAY.encode(value);
+
+    // then
+    assertThat(BinaryCodecs.LONG_ARRAY.decode(bytes)).isEqualTo(value);
+  }
+
+  @Test public void testShouldEncodeAndDecodeDoubleArray() {
+    // given
+    double[] value = { -1.5, 0, Math.PI, Double.NaN };
+
+    // when
+    byte[] bytes = BinaryCodecs.DOUBLE_ARRAY.encode(value);
+
+    // then
+    assertThat(bytes).hasLength(value.length * 8);
+    assertThat(BinaryCodecs.DOUBLE_ARRAY.decode(bytes)).isEqualTo(value);
+  }
+
+  @Test public void testShouldEncodeAndDecodeBooleanArray() {
+    // given
+    boolean[] value = { true, false, true };
+
+    // when
+    byte[] bytes = BinaryCodecs.BOOLEAN_ARRAY.encode(value);
+
+    // then
+    assertThat(BinaryCodecs.BOOLEAN_ARRAY.decode(bytes)).isEqualTo(value);
+  }
+
+  @Test public void testShouldEncodeAndDecodeStringMapInTheSameOrder() {
+    // given
+    Map<String, String> value = new LinkedHashMap<>();
+    value.put("second", "za\u017c\u00f3\u0142\u0107");
+    value.put("first", "");
+
+    // when
+    byte[] bytes = BinaryCodecs.STRING_MAP.encode(value);
+
+    // then
+    Map<String, String> decodedValue = BinaryCodecs.STRING_MAP.decode(bytes);
+    assertThat(decodedValue).containsExactlyEntriesIn(value).inOrder();
+  }
+
+  @Test public void testShouldSkipNullValuesOfMap() {
+    // given
+    Map<String, Long> value = new LinkedHashMap<>();
+    value.put("one", 1L);
+    value.put("none", null);
+
+    // when
+    byte[] bytes = BinaryCodecs.LONG_MAP.encode(value);
+
+    // then
+    Map<String, Long> decodedValue = BinaryCodecs.LONG_MAP.decode(bytes);
+    assertThat(decodedValue).containsExactly("one", 1L);
+  }
+
+  @Test public void testShouldEncodeBytesAsBase64WithPrefix() {
+    // given
+    byte[] bytes = { 1, 2, 3, 4 };
+
+    // when
+    String storedValue = BinaryValues.encode(bytes);
+
+    // then
+    assertThat(storedValue).isEqualTo(BinaryValues.PREFIX + "AQIDBA==");
+    assertThat(BinaryValues.isBinary(storedValue)).isTrue();
+    assertThat(BinaryValues.decode(storedValue)).isEqualTo(bytes);
+  }
+
+  @Test public void testShouldNotRecognizeJsonAsBinaryValue() {
+    // when
+    boolean isBinary = BinaryValues.isBinary("[1,2,3]");
+
+    // then
+    assertThat(isBinary).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldThrowAnExceptionWhenBinaryValueIsInvalid() {
+    // when
+    BinaryValues.decode(BinaryValues.PREFIX + "A?==");
+
+    // then throw an exception
+  }
+}
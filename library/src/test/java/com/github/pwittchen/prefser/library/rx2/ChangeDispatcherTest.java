@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class ChangeDispatcherTest {
+
+  private SharedPreferences preferences;
+  private ChangeDispatcher dispatcher;
+
+  private static class RecordingListener implements ChangeDispatcher.Listener {
+    private final List<String> keys = new ArrayList<>();
+
+    @Override public void onChange(String key) {
+      keys.add(key);
+    }
+  }
+
+  @Before public void setUp() {
+    preferences = mock(SharedPreferences.class);
+    dispatcher = new ChangeDispatcher(preferences);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testShouldThrowAnExceptionWhenPreferencesAreNull() {
+    new ChangeDispatcher(null);
+  }
+
+  @Test public void testShouldRegisterSingleListenerForManyListeners() {
+    // when
+    dispatcher.addListener(new RecordingListener());
+    dispatcher.addListener("key1", new RecordingListener());
+    dispatcher.addListener("key2", new RecordingListener());
+
+    // then
+    verify(preferences, times(1)).registerOnSharedPreferenceChangeListener(dispatcher);
+  }
+
+  @Test public void testShouldUnregisterListenerWhenLastListenerIsRemoved() {
+    // given
+    RecordingListener globalListener = new RecordingListener();
+    RecordingListener keyListener = new RecordingListener();
+    dispatcher.addListener(globalListener);
+    dispatcher.addListener("key", keyListener);
+
+    // when
+    dispatcher.removeListener(globalListener);
+
+    // then
+    verify(preferences, never()).unregisterOnSharedPreferenceChangeListener(dispatcher);
+    dispatcher.removeListener("key", keyListener);
+    verify(preferences, times(1)).unregisterOnSharedPreferenceChangeListener(dispatcher);
+  }
+
+  @Test public void testShouldDispatchChangeOnlyToListenersOfChangedKey() {
+    // given
+    RecordingListener globalListener = new RecordingListener();
+    RecordingListener firstKeyListener = new RecordingListener();
+    RecordingListener secondKeyListener = new RecordingListener();
+    dispatcher.addListener(globalListener);
+    dispatcher.addListener("key1", firstKeyListener);
+    dispatcher.addListener("key2", secondKeyListener);
+
+    // when
+    dispatcher.onSharedPreferenceChanged(preferences, "key1");
+
+    // then
+    assertThat(globalListener.keys).containsExactly("key1");
+    assertThat(firstKeyListener.keys).containsExactly("key1");
+    assertThat(secondKeyListener.keys).isEmpty();
+  }
+
+  @Test public void testShouldDispatchClearToAllKeyListeners() {
+    // given
+    RecordingListener firstKeyListener = new RecordingListener();
+    RecordingListener secondKeyListener = new RecordingListener();
+    dispatcher.addListener("key1", firstKeyListener);
+    dispatcher.addListener("key2", secondKeyListener);
+
+    // when
+    dispatcher.onSharedPreferenceChanged(preferences, null);
+
+    // then
+    assertThat(firstKeyListener.keys).containsExactly("key1");
+    assertThat(secondKeyListener.keys).containsExactly("key2");
+  }
+
+  @Test public void testShouldNotDispatchChangeToRemovedListener() {
+    // given
+    RecordingListener keyListener = new RecordingListener();
+    dispatcher.addListener("key", keyListener);
+    dispatcher.removeListener("key", keyListener);
+
+    // when
+    dispatcher.onSharedPreferenceChanged(preferences, "key");
+
+    // then
+    assertThat(keyListener.keys).isEmpty();
+  }
+
+  @Test public void testShouldAssignIncreasingVersionsToChangedKeys() {
+    // given
+    dispatcher.addListener("key1", new RecordingListener());
+
+    // when
+    dispatcher.onSharedPreferenceChanged(preferences, "key1");
+    dispatcher.onSharedPreferenceChanged(preferences, "key2");
+    dispatcher.onSharedPreferenceChanged(preferences, "key1");
+
+    // then
+    assertThat(dispatcher.version("key1")).isEqualTo(3);
+    assertThat(dispatcher.version("key2")).isEqualTo(2);
+    assertThat(dispatcher.version("key3")).isEqualTo(0);
+  }
+
+  @Test public void testShouldChangeVersionsOfAllKeysWhenPreferencesAreCleared() {
+    // given
+    dispatcher.onSharedPreferenceChanged(preferences, "key1");
+
+    // when
+    dispatcher.onSharedPreferenceChanged(preferences, null);
+
+    // then
+    assertThat(dispatcher.version("key1")).isEqualTo(2);
+    assertThat(dispatcher.version("key2")).isEqualTo(2);
+  }
+
+  @Test public void testShouldNotDecreaseVersionWhenKeyIsWrittenConcurrently()
+      throws InterruptedException {
+    // given
+    Runnable writer = new Runnable() {
+      @Override public void run() {
+        for (int i = 0; i < 10000; i++) {
+          dispatcher.onWrite("key");
+        }
+      }
+    };
+    Thread firstWriter = new Thread(writer);
+    Thread secondWriter = new Thread(writer);
+
+    // when
+    firstWriter.start();
+    secondWriter.start();
+    firstWriter.join();
+    secondWriter.join();
+
+    // then the highest version is kept, even if it was stored before the lower one
+    assertThat(dispatcher.version("key")).isEqualTo(dispatcher.globalVersion());
+  }
+
+  @Test public void testShouldAssignVersionBeforeListenersAreNotified() {
+    // given
+    final List<Long> versions = new ArrayList<>();
+    dispatcher.addListener("key", new ChangeDispatcher.Listener() {
+      @Override public void onChange(String key) {
+        versions.add(dispatcher.version(key));
+      }
+    });
+
+    // when
+    dispatcher.onSharedPreferenceChanged(preferences, "key");
+
+    // then
+    assertThat(versions).containsExactly(1L);
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class ChunkedValuesTest {
+
+  private static final String KEY = "key";
+
+  private final InMemoryPreferences preferences = new InMemoryPreferences();
+
+  @Test public void testShouldWriteAndReadValueSplitIntoChunks() {
+    // given
+    String value = "0123456789abcdefghij";
+
+    // when
+    write(value, 8);
+
+    // then
+    String header = preferences.getString(KEY, null);
+    assertThat(ChunkedValues.isHeader(header)).isTrue();
+    assertThat(preferences.getString(ChunkedValues.chunkKey(KEY, 0), null)).isEqualTo("01234567");
+    assertThat(preferences.getString(ChunkedValues.chunkKey(KEY, 2), null)).isEqualTo("ghij");
+    assertThat(ChunkedValues.read(preferences, KEY, header)).isEqualTo(value);
+  }
+
+  @Test public void testShouldNotSplitSurrogatePair() {
+    // given
+    String value = "0123456\uD83D\uDE00789";
+
+    // when
+    write(value, 8);
+
+    // then
+    assertThat(preferences.getString(ChunkedValues.chunkKey(KEY, 0), null)).isEqualTo("0123456");
+    String header = preferences.getString(KEY, null);
+    assertThat(ChunkedValues.read(preferences, KEY, header)).isEqualTo(value);
+  }
+
+  @Test public void testShouldRemoveChunksLeftFromLongerValue() {
+    // given
+    write("0123456789abcdefghij", 8);
+
+    // when
+    write("0123456789", 8);
+
+    // then
+    assertThat(preferences.contains(ChunkedValues.chunkKey(KEY, 1))).isTrue();
+    assertThat(preferences.contains(ChunkedValues.chunkKey(KEY, 2))).isFalse();
+  }
+
+  @Test public void testShouldWriteOnlyChangedChunks() {
+    // given
+    write("0123456789abcdefghij", 8);
+    SharedPreferences.Editor editor = mock(SharedPreferences.Editor.class);
+
+    // when
+    ChunkedValues.write(preferences, editor, KEY, "0123456789abcdefXXXX", 8, false);
+
+    // then
+    verify(editor, never()).putString(eq(ChunkedValues.chunkKey(KEY, 0)), anyString());
+    verify(editor, never()).putString(eq(ChunkedValues.chunkKey(KEY, 1)), anyString());
+    verify(editor).putString(ChunkedValues.chunkKey(KEY, 2), "XXXX");
+  }
+
+  @Test public void testShouldReadValueWrittenWithOnlyChangedChunks() {
+    // given
+    write("0123456789abcdefghij", 8);
+
+    // when
+    write("0123456789abcdefXXXX", 8);
+
+    // then
+    String header = preferences.getString(KEY, null);
+    assertThat(ChunkedValues.read(preferences, KEY, header)).isEqualTo("0123456789abcdefXXXX");
+  }
+
+  @Test public void testShouldWriteAllChunksWhenKeyIsRemovedInTheSameEditor() {
+    // given
+    write("0123456789abcdefghij", 8);
+    SharedPreferences.Editor editor = preferences.edit();
+    editor.remove(ChunkedValues.chunkKey(KEY, 0));
+    editor.remove(ChunkedValues.chunkKey(KEY, 1));
+    editor.remove(ChunkedValues.chunkKey(KEY, 2));
+
+    // when
+    ChunkedValues.write(preferences, editor, KEY, "0123456789abcdefXXXX", 8, true);
+    editor.commit();
+
+    // then
+    String header = preferences.getString(KEY, null);
+    assertThat(ChunkedValues.read(preferences, KEY, header)).isEqualTo("0123456789abcdefXXXX");
+  }
+
+  @Test public void testShouldWriteAllChunksWhenPreferencesAreClearedInTheSameEditor() {
+    // given
+    write("0123456789abcdefghij", 8);
+    SharedPreferences.Editor editor = preferences.edit().clear();
+
+    // when
+    ChunkedValues.write(preferences, editor, KEY, "0123456789abcdefghij", 8, true);
+    editor.commit();
+
+    // then
+    String header = preferences.getString(KEY, null);
+    assertThat(ChunkedValues.read(preferences, KEY, header)).isEqualTo("0123456789abcdefghij");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldThrowAnExceptionWhenChunksDoNotMatchHeader() {
+    // given
+    write("0123456789abcdefghij", 8);
+    preferences.edit().putString(ChunkedValues.chunkKey(KEY, 1), "XXXXXXXX").commit();
+
+    // when
+    ChunkedValues.read(preferences, KEY, preferences.getString(KEY, null));
+
+    // then throw an exception
+  }
+
+  @Test public void testShouldReturnNullWhenValueIsWrittenAgainWhileItIsRead() {
+    // given
+    write("0123456789abcdefghij", 8);
+    String header = preferences.getString(KEY, null);
+
+    // when
+    write("0123456789abcdefXXXX", 8);
+    String value = ChunkedValues.read(preferences, KEY, header);
+
+    // then
+    assertThat(value).isNull();
+  }
+
+  @Test public void testShouldChangeHeaderWhenTheSameValueIsWrittenAgain() {
+    // given
+    write("0123456789abcdefghij", 8);
+    String header = preferences.getString(KEY, null);
+
+    // when
+    write("0123456789abcdefghij", 8);
+
+    // then
+    String newHeader = preferences.getString(KEY, null);
+    assertThat(newHeader).isNotEqualTo(header);
+    assertThat(ChunkedValues.isSameValue(newHeader, header)).isTrue();
+    assertThat(ChunkedValues.isHeaderOf(newHeader, "0123456789abcdefghij", 8)).isTrue();
+  }
+
+  @Test public void testShouldCreateDifferentHeadersForValuesWithTheSameHashCode() {
+    // given
+    write("AaAa", 2);
+    String header = preferences.getString(KEY, null);
+
+    // when
+    write("BBBB", 2);
+
+    // then
+    assertThat(ChunkedValues.isSameValue(preferences.getString(KEY, null), header)).isFalse();
+    assertThat(ChunkedValues.isHeaderOf(header, "BBBB", 2)).isFalse();
+  }
+
+  @Test public void testShouldRecognizeChunkKeys() {
+    // when
+    boolean isChunkKey = ChunkedValues.isChunkKey(ChunkedValues.chunkKey(KEY, 0));
+
+    // then
+    assertThat(isChunkKey).isTrue();
+    assertThat(ChunkedValues.isChunkKey(KEY)).isFalse();
+  }
+
+  private void write(String value, int chunkSize) {
+    SharedPreferences.Editor editor = preferences.edit();
+    ChunkedValues.write(preferences, editor, KEY, value, chunkSize, false);
+    editor.commit();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class CompressedValuesTest {
+
+  @Test public void testShouldCompressAndDecompressValue() {
+    // given
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      builder.append("{\"flag\":\"za\u017c\u00f3\u0142\u0107\",\"enabled\":true}");
+    }
+    String value = builder.toString();
+
+    // when
+    String compressedValue = CompressedValues.compress(value);
+
+    // then
+    assertThat(CompressedValues.isCompressed(compressedValue)).isTrue();
+    assertThat(compressedValue.length()).isLessThan(value.length() / 10);
+    assertThat(CompressedValues.decompress(compressedValue)).isEqualTo(value);
+  }
+
+  @Test public void testShouldCompressAndDecompressEmptyValue() {
+    // when
+    String compressedValue = CompressedValues.compress("");
+
+    // then
+    assertThat(CompressedValues.decompress(compressedValue)).isEmpty();
+  }
+
+  @Test public void testShouldNotRecognizeJsonAsCompressedValue() {
+    // when
+    boolean isCompressed = CompressedValues.isCompressed("{\"flag\":true}");
+
+    // then
+    assertThat(isCompressed).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldThrowAnExceptionWhenCompressedValueIsTruncated() {
+    // given
+    String compressedValue = CompressedValues.compress("some value, which is compressed");
+
+    // when
+    CompressedValues.decompress(compressedValue.substring(0, compressedValue.length() - 8));
+
+    // then throw an exception
+  }
+}
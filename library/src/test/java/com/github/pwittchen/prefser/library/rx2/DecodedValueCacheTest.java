@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class DecodedValueCacheTest {
+
+  private static final String KEY = "key";
+  private static final String JSON = "[\"one\",\"two\"]";
+  private static final Type TYPE = new TypeToken<List<String>>() {
+  }.getType();
+
+  private final DecodedValueCache cache = new DecodedValueCache();
+
+  @Test public void testShouldReturnCachedValueForTheSameJsonAndType() {
+    // given
+    List<String> value = Arrays.asList("one", "two");
+
+    // when
+    cache.put(KEY, TYPE, JSON, value);
+
+    // then
+    List<String> cachedValue = cache.get(KEY, TYPE, new String(JSON));
+    assertThat(cachedValue).isSameInstanceAs(value);
+  }
+
+  @Test public void testShouldNotReturnCachedValueForDifferentJson() {
+    // when
+    cache.put(KEY, TYPE, JSON, Arrays.asList("one", "two"));
+
+    // then
+    List<String> cachedValue = cache.get(KEY, TYPE, "[\"three\"]");
+    assertThat(cachedValue).isNull();
+  }
+
+  @Test public void testShouldNotReturnCachedValueForDifferentType() {
+    // when
+    cache.put(KEY, TYPE, JSON, Arrays.asList("one", "two"));
+
+    // then
+    String[] cachedValue = cache.get(KEY, String[].class, JSON);
+    assertThat(cachedValue).isNull();
+  }
+
+  @Test public void testShouldNotReturnInvalidatedValue() {
+    // given
+    cache.put(KEY, TYPE, JSON, Arrays.asList("one", "two"));
+
+    // when
+    cache.invalidate(KEY);
+
+    // then
+    List<String> cachedValue = cache.get(KEY, TYPE, JSON);
+    assertThat(cachedValue).isNull();
+  }
+
+  @Test public void testShouldInvalidateAllValuesForNullKey() {
+    // given
+    cache.put(KEY, TYPE, JSON, Arrays.asList("one", "two"));
+    cache.put("anotherKey", TYPE, JSON, Arrays.asList("one", "two"));
+
+    // when
+    cache.invalidate(null);
+
+    // then
+    List<String> cachedValue = cache.get(KEY, TYPE, JSON);
+    List<String> anotherCachedValue = cache.get("anotherKey", TYPE, JSON);
+    assertThat(cachedValue).isNull();
+    assertThat(anotherCachedValue).isNull();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class DoubleAccessorTest {
+
+  private static final String GIVEN_KEY = "givenKey";
+  private static final double GIVEN_VALUE = 44.5;
+  private static final double DEFAULT_VALUE = 46.7;
+  private SharedPreferences preferences;
+
+  @Before public void setUp() {
+    final Context context = RuntimeEnvironment.application.getApplicationContext();
+    preferences = context.getSharedPreferences("doubles", Context.MODE_PRIVATE);
+    preferences.edit().clear().commit();
+  }
+
+  @After public void tearDown() {
+    preferences.edit().clear().commit();
+  }
+
+  @Test public void testShouldStoreDoubleAsStringByDefault() {
+    // given
+    DoubleAccessor accessor = new DoubleAccessor(preferences, false);
+
+    // when
+    SharedPreferences.Editor editor = preferences.edit();
+    accessor.putDouble(editor, GIVEN_KEY, GIVEN_VALUE);
+    editor.commit();
+
+    // then
+    assertThat(preferences.getString(GIVEN_KEY, null)).isEqualTo(String.valueOf(GIVEN_VALUE));
+    assertThat(accessor.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(GIVEN_VALUE);
+  }
+
+  @Test public void testShouldReadDoubleStoredAsLongBits() {
+    // given
+    DoubleAccessor accessor = new DoubleAccessor(preferences, true);
+
+    // when
+    SharedPreferences.Editor editor = preferences.edit();
+    accessor.putDouble(editor, GIVEN_KEY, GIVEN_VALUE);
+    editor.commit();
+
+    // then
+    long expectedBits = Double.doubleToRawLongBits(GIVEN_VALUE);
+    assertThat(preferences.getLong(GIVEN_KEY, 0L)).isEqualTo(expectedBits);
+    assertThat(accessor.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(GIVEN_VALUE);
+  }
+
+  @Test public void testShouldReadLegacyStringWhenStoringAsLongBits() {
+    // given
+    preferences.edit().putString(GIVEN_KEY, String.valueOf(GIVEN_VALUE)).commit();
+
+    // when
+    DoubleAccessor accessor = new DoubleAccessor(preferences, true);
+
+    // then
+    assertThat(accessor.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(GIVEN_VALUE);
+    assertThat(accessor.get(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(GIVEN_VALUE);
+  }
+
+  @Test public void testShouldReadLongBitsWhenStoringAsString() {
+    // given
+    preferences.edit().putLong(GIVEN_KEY, Double.doubleToRawLongBits(GIVEN_VALUE)).commit();
+
+    // when
+    DoubleAccessor accessor = new DoubleAccessor(preferences, false);
+
+    // then
+    assertThat(accessor.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(GIVEN_VALUE);
+  }
+
+  @Test public void testShouldReturnDefaultValueInBothFormats() {
+    // given
+    DoubleAccessor stringAccessor = new DoubleAccessor(preferences, false);
+    DoubleAccessor longBitsAccessor = new DoubleAccessor(preferences, true);
+
+    // then
+    assertThat(stringAccessor.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(DEFAULT_VALUE);
+    assertThat(longBitsAccessor.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(DEFAULT_VALUE);
+    assertThat(longBitsAccessor.get(GIVEN_KEY, null)).isNull();
+  }
+
+  @Test public void testShouldMigrateLegacyStringToLongBitsOnWrite() {
+    // given
+    preferences.edit().putString(GIVEN_KEY, String.valueOf(GIVEN_VALUE)).commit();
+    Prefser prefser = new Prefser(preferences, new GsonConverter(),
+        PrefserSettings.builder().storeDoublesAsLongBits(true).build());
+
+    // when
+    double legacyValue = prefser.get(GIVEN_KEY, Double.class, DEFAULT_VALUE);
+    prefser.put(GIVEN_KEY, legacyValue + 1);
+
+    // then
+    long expectedBits = Double.doubleToRawLongBits(GIVEN_VALUE + 1);
+    assertThat(preferences.getLong(GIVEN_KEY, 0L)).isEqualTo(expectedBits);
+    assertThat(prefser.getDouble(GIVEN_KEY, DEFAULT_VALUE)).isEqualTo(GIVEN_VALUE + 1);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class GsonConverterTest {
+
+  private static final Type LIST_OF_STRINGS = new TypeToken<List<String>>() {
+  }.getType();
+
+  private final GsonConverter converter = new GsonConverter();
+
+  @GenerateTypeAdapter static class GeneratedModel {
+    int count;
+    String name;
+    List<String> tags;
+  }
+
+  @Test public void testShouldWriteTheSameJsonToWriterAndString() {
+    // given
+    List<String> value = Arrays.asList("one", "two", "three");
+    StringWriter writer = new StringWriter();
+
+    // when
+    converter.toJson(value, LIST_OF_STRINGS, writer);
+
+    // then
+    assertThat(writer.toString()).isEqualTo(converter.toJson(value, LIST_OF_STRINGS));
+  }
+
+  @Test public void testShouldWriteJsonToReusableBuffer() {
+    // given
+    JsonBuffer buffer = new JsonBuffer();
+    List<String> firstValue = Arrays.asList("one", "two", "three");
+    List<String> secondValue = Arrays.asList("four");
+
+    // when
+    String firstJson = buffer.toJson(converter, firstValue, LIST_OF_STRINGS);
+    String secondJson = buffer.toJson(converter, secondValue, LIST_OF_STRINGS);
+
+    // then
+    assertThat(firstJson).isEqualTo("[\"one\",\"two\",\"three\"]");
+    assertThat(secondJson).isEqualTo("[\"four\"]");
+  }
+
+  @Test public void testShouldReuseBufferForValueLargerThanRetainedCapacity() {
+    // given
+    final List<Writer> writers = new ArrayList<>();
+    StreamingJsonConverter recordingConverter = new StreamingJsonConverter() {
+      @Override public <T> T fromJson(String json, Type typeOfT) {
+        return converter.fromJson(json, typeOfT);
+      }
+
+      @Override public <T> String toJson(T object, Type typeOfT) {
+        return converter.toJson(object, typeOfT);
+      }
+
+      @Override public <T> void toJson(T object, Type typeOfT, Writer writer) {
+        writers.add(writer);
+        converter.toJson(object, typeOfT, writer);
+      }
+    };
+    JsonBuffer buffer = new JsonBuffer();
+    char[] chars = new char[JsonBuffer.MAX_RETAINED_CAPACITY];
+    Arrays.fill(chars, 'x');
+    List<String> largeValue = Arrays.asList(new String(chars), "first");
+    List<String> otherLargeValue = Arrays.asList(new String(chars), "second");
+
+    // when
+    String json = buffer.toJson(recordingConverter, largeValue, LIST_OF_STRINGS);
+    String otherJson = buffer.toJson(recordingConverter, otherLargeValue, LIST_OF_STRINGS);
+
+    // then
+    assertThat(json).isEqualTo(converter.toJson(largeValue, LIST_OF_STRINGS));
+    assertThat(otherJson).isEqualTo(converter.toJson(otherLargeValue, LIST_OF_STRINGS));
+    assertThat(writers).hasSize(2);
+    assertThat(writers.get(1)).isSameInstanceAs(writers.get(0));
+  }
+
+  @Test public void testShouldWriteTheSameJsonWithGeneratedTypeAdapter() {
+    // given
+    GsonConverter generatedConverter = GsonConverter.withGeneratedTypeAdapters();
+    GeneratedModel model = new GeneratedModel();
+    model.count = 42;
+    model.name = "name";
+    model.tags = Arrays.asList("one", "two");
+
+    // when
+    String json = generatedConverter.toJson(model, GeneratedModel.class);
+    GeneratedModel readModel = generatedConverter.fromJson(json, GeneratedModel.class);
+
+    // then
+    assertThat(json).isEqualTo(converter.toJson(model, GeneratedModel.class));
+    assertThat(readModel.count).isEqualTo(42);
+    assertThat(readModel.name).isEqualTo("name");
+    assertThat(readModel.tags).containsExactly("one", "two").inOrder();
+  }
+
+  @Test public void testShouldReadStringFieldsLikeGsonWithGeneratedTypeAdapter() {
+    // given
+    GsonConverter generatedConverter = GsonConverter.withGeneratedTypeAdapters();
+    String json = "{\"count\":1,\"name\":true,\"tags\":null}";
+    String jsonWithNumber = "{\"name\":42}";
+    String jsonWithNull = "{\"name\":null}";
+
+    // when
+    GeneratedModel model = generatedConverter.fromJson(json, GeneratedModel.class);
+    GeneratedModel modelWithNumber =
+        generatedConverter.fromJson(jsonWithNumber, GeneratedModel.class);
+    GeneratedModel modelWithNull =
+        generatedConverter.fromJson(jsonWithNull, GeneratedModel.class);
+
+    // then
+    assertThat(model.name).isEqualTo(converter.fromJson(json, GeneratedModel.class).name);
+    assertThat(model.name).isEqualTo("true");
+    assertThat(modelWithNumber.name).isEqualTo("42");
+    assertThat(modelWithNull.name).isNull();
+    assertThat(generatedConverter.toJson(model, GeneratedModel.class))
+        .isEqualTo(converter.toJson(model, GeneratedModel.class));
+  }
+}
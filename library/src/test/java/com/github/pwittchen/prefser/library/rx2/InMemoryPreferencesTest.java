@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class InMemoryPreferencesTest {
+
+  private final InMemoryPreferences preferences = new InMemoryPreferences();
+
+  private static class RecordingListener
+      implements SharedPreferences.OnSharedPreferenceChangeListener {
+    private final List<String> keys = new ArrayList<>();
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+      keys.add(key);
+    }
+  }
+
+  @Test public void testShouldReadWrittenValues() {
+    // given
+    Set<String> givenSet = new HashSet<>(Arrays.asList("one", "two"));
+
+    // when
+    preferences.edit()
+        .putBoolean("boolean", true)
+        .putInt("int", 42)
+        .putLong("long", 43L)
+        .putFloat("float", 44f)
+        .putString("string", "value")
+        .putStringSet("set", givenSet)
+        .apply();
+
+    // then
+    assertThat(preferences.getBoolean("boolean", false)).isTrue();
+    assertThat(preferences.getInt("int", 0)).isEqualTo(42);
+    assertThat(preferences.getLong("long", 0L)).isEqualTo(43L);
+    assertThat(preferences.getFloat("float", 0f)).isEqualTo(44f);
+    assertThat(preferences.getString("string", null)).isEqualTo("value");
+    assertThat(preferences.getStringSet("set", null)).isEqualTo(givenSet);
+    assertThat(preferences.getAll()).hasSize(6);
+  }
+
+  @Test public void testShouldReturnDefaultValuesForMissingKeys() {
+    assertThat(preferences.contains("key")).isFalse();
+    assertThat(preferences.getInt("key", 42)).isEqualTo(42);
+    assertThat(preferences.getString("key", "default")).isEqualTo("default");
+  }
+
+  @Test public void testShouldNotWriteValuesBeforeApply() {
+    // when
+    SharedPreferences.Editor editor = preferences.edit().putInt("key", 42);
+
+    // then
+    assertThat(preferences.contains("key")).isFalse();
+    assertThat(editor.commit()).isTrue();
+    assertThat(preferences.contains("key")).isTrue();
+  }
+
+  @Test public void testShouldRemoveAndClearValues() {
+    // given
+    preferences.edit().putInt("key1", 1).putInt("key2", 2).putInt("key3", 3).apply();
+
+    // when
+    preferences.edit().remove("key1").apply();
+
+    // then
+    assertThat(preferences.contains("key1")).isFalse();
+    preferences.edit().clear().putInt("key4", 4).apply();
+    assertThat(preferences.getAll().keySet()).containsExactly("key4");
+  }
+
+  @Test public void testShouldNotifyListenerOnlyAboutChangedValues() {
+    // given
+    RecordingListener listener = new RecordingListener();
+    preferences.edit().putInt("key1", 1).apply();
+    preferences.registerOnSharedPreferenceChangeListener(listener);
+
+    // when
+    preferences.edit().putInt("key1", 1).putInt("key2", 2).remove("key3").apply();
+
+    // then
+    assertThat(listener.keys).containsExactly("key2");
+  }
+
+  @Test public void testShouldNotifyListenerAboutClearWithNullKey() {
+    // given
+    RecordingListener listener = new RecordingListener();
+    preferences.edit().putInt("key1", 1).apply();
+    preferences.registerOnSharedPreferenceChangeListener(listener);
+
+    // when
+    preferences.edit().clear().apply();
+
+    // then
+    assertThat(listener.keys).containsExactly((String) null);
+  }
+
+  @Test public void testShouldNotNotifyUnregisteredListener() {
+    // given
+    RecordingListener listener = new RecordingListener();
+    preferences.registerOnSharedPreferenceChangeListener(listener);
+    preferences.unregisterOnSharedPreferenceChangeListener(listener);
+
+    // when
+    preferences.edit().putInt("key", 1).apply();
+
+    // then
+    assertThat(listener.keys).isEmpty();
+  }
+
+  @Test public void testShouldWorkWithPrefser() {
+    // given
+    Prefser prefser = new Prefser(preferences);
+    List<String> givenList = Arrays.asList("one", "two");
+    TypeToken<List<String>> typeToken = new TypeToken<List<String>>() {
+    };
+
+    // when
+    prefser.put("int", 42);
+    prefser.put("list", givenList, typeToken);
+
+    // then
+    assertThat(prefser.get("int", Integer.class, 0)).isEqualTo(42);
+    assertThat(prefser.get("list", typeToken, null)).isEqualTo(givenList);
+    assertThat(prefser.size()).isEqualTo(2);
+    prefser.getPreferences().edit().clear().apply();
+    assertThat(prefser.isEmpty()).isTrue();
+  }
+}
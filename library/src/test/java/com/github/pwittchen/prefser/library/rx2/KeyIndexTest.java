@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class KeyIndexTest {
+
+  private SharedPreferences preferences;
+  private KeyIndex keyIndex;
+
+  @Before public void setUp() {
+    final Context context = RuntimeEnvironment.application.getApplicationContext();
+    preferences = context.getSharedPreferences("keys", Context.MODE_PRIVATE);
+    preferences.edit().clear().commit();
+    keyIndex = new KeyIndex(preferences, new ChangeDispatcher(preferences));
+  }
+
+  @After public void tearDown() {
+    preferences.edit().clear().commit();
+  }
+
+  @Test public void testShouldReadAllKeysOnlyOnce() {
+    // given
+    SharedPreferences mockedPreferences = mock(SharedPreferences.class);
+    Map<String, Object> values = new HashMap<>();
+    values.put("key1", 1);
+    values.put("key2", 2);
+    doReturn(values).when(mockedPreferences).getAll();
+    KeyIndex index = new KeyIndex(mockedPreferences, new ChangeDispatcher(mockedPreferences));
+
+    // when
+    index.size();
+    index.size();
+    index.isEmpty();
+
+    // then
+    assertThat(index.size()).isEqualTo(2);
+    verify(mockedPreferences, times(1)).getAll();
+  }
+
+  @Test public void testShouldTrackKeysWrittenDirectlyToPreferences() {
+    // given
+    assertThat(keyIndex.isEmpty()).isTrue();
+
+    // when
+    preferences.edit().putInt("key1", 1).putInt("key2", 2).commit();
+
+    // then
+    assertThat(keyIndex.size()).isEqualTo(2);
+    preferences.edit().remove("key1").commit();
+    assertThat(keyIndex.size()).isEqualTo(1);
+  }
+
+  @Test public void testShouldTrackKeysWrittenInTransaction() {
+    // given
+    preferences.edit().putInt("key1", 1).commit();
+    assertThat(keyIndex.size()).isEqualTo(1);
+
+    // when
+    preferences.edit().clear().putInt("key2", 2).putInt("key3", 3).commit();
+    keyIndex.onWrite(Arrays.asList("key2", "key3"), true);
+
+    // then
+    assertThat(keyIndex.size()).isEqualTo(2);
+  }
+
+  @Test public void testShouldBeEmptyAfterClear() {
+    // given
+    preferences.edit().putInt("key1", 1).commit();
+    assertThat(keyIndex.isEmpty()).isFalse();
+
+    // when
+    preferences.edit().clear().commit();
+    keyIndex.onClear();
+
+    // then
+    assertThat(keyIndex.isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class LogStructuredPreferencesTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test public void testShouldReadValuesAfterReopeningFile() throws IOException {
+    // given
+    File file = new File(temporaryFolder.getRoot(), "preferences.log");
+    Set<String> givenSet = new HashSet<>(Arrays.asList("one", "two"));
+    LogStructuredPreferences preferences = LogStructuredPreferences.open(file);
+
+    // when
+    preferences.edit()
+        .putBoolean("boolean", true)
+        .putInt("int", 42)
+        .putLong("long", 43L)
+        .putFloat("float", 44f)
+        .putString("string", "value")
+        .putStringSet("set", givenSet)
+        .putString("removed", "value")
+        .commit();
+    preferences.edit().remove("removed").apply();
+    preferences.close();
+    LogStructuredPreferences reopenedPreferences = LogStructuredPreferences.open(file);
+
+    // then
+    assertThat(reopenedPreferences.getBoolean("boolean", false)).isTrue();
+    assertThat(reopenedPreferences.getInt("int", 0)).isEqualTo(42);
+    assertThat(reopenedPreferences.getLong("long", 0L)).isEqualTo(43L);
+    assertThat(reopenedPreferences.getFloat("float", 0f)).isEqualTo(44f);
+    assertThat(reopenedPreferences.getString("string", null)).isEqualTo("value");
+    assertThat(reopenedPreferences.getStringSet("set", null)).isEqualTo(givenSet);
+    assertThat(reopenedPreferences.contains("removed")).isFalse();
+    reopenedPreferences.close();
+  }
+
+  @Test public void testShouldNotReadValuesAfterClear() throws IOException {
+    // given
+    File file = new File(temporaryFolder.getRoot(), "preferences.log");
+    LogStructuredPreferences preferences = LogStructuredPreferences.open(file);
+    preferences.edit().putInt("first", 1).commit();
+
+    // when
+    preferences.edit().clear().putInt("second", 2).commit();
+    preferences.close();
+    LogStructuredPreferences reopenedPreferences = LogStructuredPreferences.open(file);
+
+    // then
+    assertThat(reopenedPreferences.getAll()).hasSize(1);
+    assertThat(reopenedPreferences.getInt("second", 0)).isEqualTo(2);
+    reopenedPreferences.close();
+  }
+
+  @Test public void testShouldIgnoreIncompleteChanges() throws IOException {
+    // given
+    File file = new File(temporaryFolder.getRoot(), "preferences.log");
+    LogStructuredPreferences preferences = LogStructuredPreferences.open(file);
+    preferences.edit().putInt("key", 42).commit();
+    preferences.close();
+    long validLength = file.length();
+
+    // when
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.seek(validLength);
+    randomAccessFile.write(new byte[] { 0, 0, 0, 100, 1, 2, 3 }); // frame interrupted by crash
+    randomAccessFile.close();
+    LogStructuredPreferences reopenedPreferences = LogStructuredPreferences.open(file);
+
+    // then
+    assertThat(reopenedPreferences.getAll()).hasSize(1);
+    assertThat(reopenedPreferences.getInt("key", 0)).isEqualTo(42);
+    assertThat(file.length()).isEqualTo(validLength);
+    reopenedPreferences.close();
+  }
+
+  @Test public void testShouldCompactFileWithOverwrittenValues() throws IOException {
+    // given
+    File file = new File(temporaryFolder.getRoot(), "preferences.log");
+    LogStructuredPreferences preferences = LogStructuredPreferences.open(file, 10);
+
+    // when
+    for (int i = 0; i < 100; i++) {
+      preferences.edit().putInt("key", i).apply();
+    }
+    preferences.close();
+    LogStructuredPreferences reopenedPreferences = LogStructuredPreferences.open(file);
+
+    // then
+    assertThat(reopenedPreferences.getInt("key", 0)).isEqualTo(99);
+    assertThat(file.length()).isLessThan(100L * 10); // 100 frames take at least 15 bytes each
+    reopenedPreferences.close();
+  }
+
+  @Test public void testShouldNotChangeValuesAfterClosing() throws IOException {
+    // given
+    File file = new File(temporaryFolder.getRoot(), "preferences.log");
+    LogStructuredPreferences preferences = LogStructuredPreferences.open(file);
+    preferences.close();
+
+    // when
+    IllegalStateException exception = null;
+    try {
+      preferences.edit().putInt("key", 42).apply();
+    } catch (IllegalStateException e) {
+      exception = e;
+    }
+
+    // then
+    assertThat(exception).isNotNull();
+    assertThat(preferences.contains("key")).isFalse();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import io.reactivex.observers.TestObserver;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class PreferenceTest {
+
+  private static final String GIVEN_KEY = "givenKey";
+
+  private final Prefser prefser = new Prefser(new InMemoryPreferences());
+
+  @Test public void testShouldReturnDefaultValueWhenValueIsNotStored() {
+    // given
+    Preference<Integer> preference = prefser.preference(GIVEN_KEY, Integer.class, 42);
+
+    // when
+    Integer value = preference.get();
+
+    // then
+    assertThat(value).isEqualTo(42);
+    assertThat(preference.isSet()).isFalse();
+  }
+
+  @Test public void testShouldReturnNullWhenValueIsNotStoredAndDefaultValueIsNull() {
+    // given
+    Preference<Integer> preference = prefser.preference(GIVEN_KEY, Integer.class, null);
+
+    // when
+    Integer value = preference.get();
+
+    // then
+    assertThat(value).isNull();
+  }
+
+  @Test public void testShouldSetAndGetPrimitiveValue() {
+    // given
+    Preference<Integer> preference = prefser.preference(GIVEN_KEY, Integer.class, 0);
+
+    // when
+    preference.set(42);
+
+    // then
+    assertThat(preference.get()).isEqualTo(42);
+    assertThat(prefser.getInt(GIVEN_KEY, 0)).isEqualTo(42);
+  }
+
+  @Test public void testShouldSetAndGetValueStoredAsJson() {
+    // given
+    TypeToken<List<String>> typeToken = new TypeToken<List<String>>() {
+    };
+    Preference<List<String>> preference = prefser.preference(GIVEN_KEY, typeToken, null);
+    List<String> givenList = Arrays.asList("one", "two");
+
+    // when
+    preference.set(givenList);
+
+    // then
+    assertThat(preference.get()).isEqualTo(givenList);
+    assertThat(prefser.get(GIVEN_KEY, typeToken, null)).isEqualTo(givenList);
+  }
+
+  @Test public void testShouldDeleteValue() {
+    // given
+    Preference<String> preference = prefser.preference(GIVEN_KEY, String.class, "default");
+    preference.set("value");
+
+    // when
+    preference.delete();
+
+    // then
+    assertThat(preference.isSet()).isFalse();
+    assertThat(preference.get()).isEqualTo("default");
+  }
+
+  @Test public void testShouldObserveChangesOfValue() {
+    // given
+    Preference<String> preference = prefser.preference(GIVEN_KEY, String.class, "default");
+    TestObserver<String> observer = preference.observe().test();
+
+    // when
+    preference.set("value");
+    preference.delete();
+
+    // then
+    observer.assertValues("value", "default");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testShouldThrowAnExceptionWhenKeyIsNull() {
+    // when
+    prefser.preference(null, String.class, "default");
+
+    // then throw an exception
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testShouldThrowAnExceptionWhenSetValueIsNull() {
+    // given
+    Preference<String> preference = prefser.preference(GIVEN_KEY, String.class, "default");
+
+    // when
+    preference.set(null);
+
+    // then throw an exception
+  }
+}
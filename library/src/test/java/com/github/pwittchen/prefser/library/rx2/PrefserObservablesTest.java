@@ -16,21 +16,33 @@
 package com.github.pwittchen.prefser.library.rx2;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import com.github.pwittchen.prefser.library.rx2.utils.RecordingObserver;
+import io.reactivex.BackpressureStrategy;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Consumer;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.AdditionalAnswers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 
 @RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
 public final class PrefserObservablesTest {
@@ -1220,6 +1232,247 @@ public final class PrefserObservablesTest {
     observer2.assertNoMoreEvents();
   }
 
+  @Test public void testObserveShouldNotEmitChangesOfOtherKeys() {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    String anotherKey = "anotherKey";
+
+    // when
+    RecordingObserver<String> observer = new RecordingObserver<>();
+    RecordingObserver<String> anotherObserver = new RecordingObserver<>();
+    prefser.observe(givenKey, String.class, "").subscribe(observer);
+    prefser.observe(anotherKey, String.class, "").subscribe(anotherObserver);
+    prefser.put(anotherKey, GIVEN_STRING_VALUE);
+
+    // then
+    assertThat(anotherObserver.takeNext()).isEqualTo(GIVEN_STRING_VALUE);
+    observer.assertNoMoreEvents();
+    anotherObserver.assertNoMoreEvents();
+  }
+
+  @Test public void testObserveDistinctShouldEmitOnlyChangedValues() {
+    // given
+    prefser.clear();
+    CustomClass givenObject = new CustomClass(1, "first");
+    CustomClass anotherObject = new CustomClass(2, "second");
+    RecordingObserver<CustomClass> observer = new RecordingObserver<>();
+    prefser.observeDistinct(GIVEN_KEY, CustomClass.class, null).subscribe(observer);
+
+    // when
+    prefser.put(GIVEN_KEY, givenObject);
+    prefser.put(GIVEN_KEY, anotherObject);
+
+    // then
+    assertThat(observer.takeNext()).isEqualTo(givenObject);
+    assertThat(observer.takeNext()).isEqualTo(anotherObject);
+    observer.assertNoMoreEvents();
+  }
+
+  @Test public void testObserveDistinctShouldNotEmitWhenStoredValueWasNotChanged() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put("anotherKey", GIVEN_STRING_VALUE);
+    RecordingObserver<String> observer = new RecordingObserver<>();
+    inMemoryPrefser.observeDistinct(GIVEN_KEY, String.class, "").subscribe(observer);
+
+    // when
+    inMemoryPrefser.clear(); // notifies observers of all keys
+    inMemoryPrefser.put(GIVEN_KEY, GIVEN_STRING_VALUE);
+
+    // then
+    assertThat(observer.takeNext()).isEqualTo(GIVEN_STRING_VALUE);
+    observer.assertNoMoreEvents();
+  }
+
+  @Test public void testObserveDistinctShouldEmitValueWrittenRightAfterSeenValueWasRead() {
+    // given
+    final InMemoryPreferences inMemoryPreferences = new InMemoryPreferences();
+    inMemoryPreferences.edit().putString(GIVEN_KEY, GIVEN_STRING_VALUE).commit();
+    SharedPreferences preferences =
+        mock(SharedPreferences.class, AdditionalAnswers.delegatesTo(inMemoryPreferences));
+    doAnswer(new Answer<String>() {
+      private boolean written;
+
+      @Override public String answer(InvocationOnMock invocation) {
+        String value = inMemoryPreferences.getString(GIVEN_KEY, "");
+        if (!written) { // value is changed right after observeDistinct(...) read it
+          written = true;
+          inMemoryPreferences.edit().putString(GIVEN_KEY, "anotherValue").commit();
+        }
+        return value;
+      }
+    }).when(preferences).getString(eq(GIVEN_KEY), anyString());
+    RecordingObserver<String> observer = new RecordingObserver<>();
+
+    // when
+    new Prefser(preferences).observeDistinct(GIVEN_KEY, String.class, "").subscribe(observer);
+
+    // then
+    assertThat(observer.takeNext()).isEqualTo("anotherValue");
+    observer.assertNoMoreEvents();
+  }
+
+  @Test public void testObservePreferencesShouldEmitOnlyLatestKeyToSlowSubscriber() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    TestSubscriber<String> subscriber =
+        inMemoryPrefser.observePreferences(BackpressureStrategy.LATEST).test(0);
+
+    // when
+    inMemoryPrefser.put("first", 1);
+    inMemoryPrefser.put("second", 2);
+    inMemoryPrefser.put("third", 3);
+    subscriber.requestMore(3);
+
+    // then
+    subscriber.assertValues("third");
+  }
+
+  @Test public void testObservePreferencesShouldDropOldestKeysWhenBufferIsFull() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    TestSubscriber<String> subscriber = inMemoryPrefser.observePreferences(2).test(0);
+
+    // when
+    inMemoryPrefser.put("first", 1);
+    inMemoryPrefser.put("second", 2);
+    inMemoryPrefser.put("third", 3);
+    subscriber.requestMore(3);
+
+    // then
+    subscriber.assertValues("second", "third");
+  }
+
+  @Test public void testObserveShouldEmitOnlyLatestValueToSlowSubscriber() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    TestSubscriber<Integer> subscriber =
+        inMemoryPrefser.observe(GIVEN_KEY, Integer.class, 0, BackpressureStrategy.LATEST).test(0);
+
+    // when
+    for (int i = 1; i <= 10; i++) {
+      inMemoryPrefser.put(GIVEN_KEY, i);
+    }
+    subscriber.requestMore(10);
+
+    // then
+    subscriber.assertValues(10);
+  }
+
+  @Test public void testObserveShouldDropOldestValuesWhenBufferIsFull() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    TestSubscriber<String> subscriber =
+        inMemoryPrefser.observe(GIVEN_KEY, String.class, "", 2).test(0);
+
+    // when
+    inMemoryPrefser.put(GIVEN_KEY, "first");
+    inMemoryPrefser.put(GIVEN_KEY, "second");
+    inMemoryPrefser.put(GIVEN_KEY, "third");
+    subscriber.requestMore(3);
+
+    // then values are read when they're emitted
+    subscriber.assertValues("third", "third");
+  }
+
+  @Test public void testGetAndObserveShouldDropOldestValuesWhenBufferIsFull() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, "first");
+    TestSubscriber<String> subscriber =
+        inMemoryPrefser.getAndObserve(GIVEN_KEY, String.class, "", 2).test(0);
+
+    // when
+    inMemoryPrefser.put(GIVEN_KEY, "second");
+    inMemoryPrefser.put(GIVEN_KEY, "third");
+    subscriber.requestMore(3);
+
+    // then
+    subscriber.assertValues("second", "third");
+  }
+
+  @Test public void testGetAndObserveShouldEmitStoredValueAsFlowable() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, GIVEN_STRING_VALUE);
+
+    // when
+    TestSubscriber<String> subscriber = inMemoryPrefser
+        .getAndObserve(GIVEN_KEY, String.class, "", BackpressureStrategy.LATEST)
+        .test();
+
+    // then
+    subscriber.assertValues(GIVEN_STRING_VALUE);
+  }
+
+  @Test public void testObserveShouldReadValueOnDecodeScheduler() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    TestScheduler decodeScheduler = new TestScheduler();
+    TestObserver<List<String>> observer = inMemoryPrefser
+        .observe(GIVEN_KEY, new TypeToken<List<String>>() {
+        }, null, decodeScheduler)
+        .test();
+
+    // when
+    inMemoryPrefser.put(GIVEN_KEY, Arrays.asList("one", "two"));
+
+    // then
+    observer.assertNoValues();
+    decodeScheduler.triggerActions();
+    observer.assertValues(Arrays.asList("one", "two"));
+  }
+
+  @Test public void testGetAndObserveShouldReadFirstValueOnDecodeScheduler() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, GIVEN_STRING_VALUE);
+    TestScheduler decodeScheduler = new TestScheduler();
+
+    // when
+    TestObserver<String> observer = inMemoryPrefser
+        .getAndObserve(GIVEN_KEY, String.class, "", decodeScheduler)
+        .test();
+
+    // then
+    observer.assertNoValues();
+    decodeScheduler.triggerActions();
+    observer.assertValues(GIVEN_STRING_VALUE);
+  }
+
+  @Test public void testGetAndObserveShouldEmitCurrentValueAndChangesOnce() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, 1);
+
+    // when
+    TestObserver<Integer> observer =
+        inMemoryPrefser.getAndObserve(GIVEN_KEY, Integer.class, 0).test();
+    inMemoryPrefser.put(GIVEN_KEY, 2);
+    inMemoryPrefser.put(GIVEN_KEY, 2);
+    inMemoryPrefser.remove(GIVEN_KEY);
+
+    // then
+    observer.assertValues(1, 2, 0);
+  }
+
+  @Test public void testGetAndObserveShouldNotEmitChangeAlreadyReadOnDecodeScheduler() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, 1);
+    TestScheduler decodeScheduler = new TestScheduler();
+    TestObserver<Integer> observer =
+        inMemoryPrefser.getAndObserve(GIVEN_KEY, Integer.class, 0, decodeScheduler).test();
+
+    // when
+    inMemoryPrefser.put(GIVEN_KEY, 2);
+    decodeScheduler.triggerActions();
+
+    // then
+    observer.assertValues(2);
+  }
+
   @Test public void testShouldDisposeSubscriptionAndStopObservation() {
     // given
     prefser.clear();
@@ -18,11 +18,14 @@ package com.github.pwittchen.prefser.library.rx2;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.SharedPreferences;
+import io.reactivex.schedulers.TestScheduler;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,7 +35,10 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
@@ -203,6 +209,33 @@ public final class PrefserTest {
     assertThat(prefser.size()).isEqualTo(0);
   }
 
+  @Test public void testIsEmpty() throws Exception {
+    // given
+    prefser.clear();
+    assertThat(prefser.isEmpty()).isTrue();
+
+    // when
+    prefser.put(GIVEN_KEY, 1);
+
+    // then
+    assertThat(prefser.isEmpty()).isFalse();
+    prefser.remove(GIVEN_KEY);
+    assertThat(prefser.isEmpty()).isTrue();
+  }
+
+  @Test public void testSizeShouldIncludeValuesWrittenWithoutPrefser() throws Exception {
+    // given
+    prefser.clear();
+    prefser.put("key1", 1);
+    assertThat(prefser.size()).isEqualTo(1);
+
+    // when
+    prefser.getPreferences().edit().putInt("key2", 2).putInt("key3", 3).commit();
+
+    // then
+    assertThat(prefser.size()).isEqualTo(3);
+  }
+
   @Test public void testRemove() throws Exception {
     // given
     String givenKey = GIVEN_KEY;
@@ -429,6 +462,130 @@ public final class PrefserTest {
     prefser.remove(givenKey);
   }
 
+  @Test public void testPutIntegerAndGetWithTypeToken() throws Exception {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    Integer givenValue = 42;
+    Integer defaultValue = 43;
+    TypeToken<Integer> typeToken = new TypeToken<Integer>() {
+    };
+
+    // when
+    prefser.put(givenKey, givenValue, typeToken);
+
+    // then
+    Integer readValue = prefser.get(givenKey, typeToken, defaultValue);
+    assertThat(readValue).isEqualTo(givenValue);
+    assertThat(prefser.getPreferences().getInt(givenKey, defaultValue)).isEqualTo(givenValue);
+    prefser.remove(givenKey);
+  }
+
+  @Test public void testPutBooleanPrimitiveWithoutBoxing() {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    boolean givenValue = true;
+    boolean defaultValue = false;
+
+    // when
+    prefser.putBoolean(givenKey, givenValue);
+
+    // then
+    assertThat(prefser.getBoolean(givenKey, defaultValue)).isEqualTo(givenValue);
+    assertThat(prefser.get(givenKey, Boolean.class, defaultValue)).isEqualTo(givenValue);
+    prefser.remove(givenKey);
+  }
+
+  @Test public void testPutIntPrimitiveWithoutBoxing() {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    int givenValue = 42;
+    int defaultValue = 43;
+
+    // when
+    prefser.putInt(givenKey, givenValue);
+
+    // then
+    assertThat(prefser.getInt(givenKey, defaultValue)).isEqualTo(givenValue);
+    assertThat(prefser.get(givenKey, Integer.class, defaultValue)).isEqualTo(givenValue);
+    prefser.remove(givenKey);
+  }
+
+  @Test public void testPutLongPrimitiveWithoutBoxing() {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    long givenValue = 43L;
+    long defaultValue = 44L;
+
+    // when
+    prefser.putLong(givenKey, givenValue);
+
+    // then
+    assertThat(prefser.getLong(givenKey, defaultValue)).isEqualTo(givenValue);
+    assertThat(prefser.get(givenKey, Long.class, defaultValue)).isEqualTo(givenValue);
+    prefser.remove(givenKey);
+  }
+
+  @Test public void testPutFloatPrimitiveWithoutBoxing() {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    float givenValue = 41f;
+    float defaultValue = 42f;
+
+    // when
+    prefser.putFloat(givenKey, givenValue);
+
+    // then
+    assertThat(prefser.getFloat(givenKey, defaultValue)).isEqualTo(givenValue);
+    assertThat(prefser.get(givenKey, Float.class, defaultValue)).isEqualTo(givenValue);
+    prefser.remove(givenKey);
+  }
+
+  @Test public void testPutDoublePrimitiveWithoutBoxing() {
+    // given
+    prefser.clear();
+    String givenKey = GIVEN_KEY;
+    double givenValue = 44.5;
+    double defaultValue = 46.7;
+
+    // when
+    prefser.putDouble(givenKey, givenValue);
+
+    // then
+    assertThat(prefser.getDouble(givenKey, defaultValue)).isEqualTo(givenValue);
+    assertThat(prefser.get(givenKey, Double.class, defaultValue)).isEqualTo(givenValue);
+    prefser.remove(givenKey);
+  }
+
+  @Test public void testGetIntPrimitiveShouldReturnDefaultValue() {
+    // given
+    prefser.clear();
+    int defaultValue = 43;
+
+    // when
+    int readValue = prefser.getInt(KEY_WHICH_DOES_NOT_EXIST, defaultValue);
+
+    // then
+    assertThat(readValue).isEqualTo(defaultValue);
+  }
+
+  @Test public void testGetDoublePrimitiveShouldReadValuePutAsObject() {
+    // given
+    prefser.clear();
+    Double givenValue = 44.5;
+
+    // when
+    prefser.put(GIVEN_KEY, givenValue);
+
+    // then
+    assertThat(prefser.getDouble(GIVEN_KEY, 0.0)).isEqualTo(givenValue);
+    prefser.remove(GIVEN_KEY);
+  }
+
   @Test public void testPutCustomObject() throws Exception {
     // given
     prefser.clear();
@@ -445,6 +602,456 @@ public final class PrefserTest {
     prefser.remove(givenKey);
   }
 
+  @Test public void testGetCustomObjectFromCacheWhenCacheIsEnabled() {
+    // given
+    Context context = RuntimeEnvironment.application.getApplicationContext();
+    PrefserSettings settings = PrefserSettings.builder().cacheDecodedValues(true).build();
+    Prefser cachingPrefser = new Prefser(context, new GsonConverter(), settings);
+    CustomClass givenObject = new CustomClass(23, "someText");
+    cachingPrefser.put(GIVEN_KEY, givenObject);
+
+    // when
+    CustomClass firstRead = cachingPrefser.get(GIVEN_KEY, CustomClass.class, null);
+    CustomClass secondRead = cachingPrefser.get(GIVEN_KEY, CustomClass.class, null);
+
+    // then
+    assertThat(firstRead).isEqualTo(givenObject);
+    assertThat(secondRead).isSameInstanceAs(firstRead);
+  }
+
+  @Test public void testGetUpdatedCustomObjectWhenCacheIsEnabled() {
+    // given
+    Context context = RuntimeEnvironment.application.getApplicationContext();
+    PrefserSettings settings = PrefserSettings.builder().cacheDecodedValues(true).build();
+    Prefser cachingPrefser = new Prefser(context, new GsonConverter(), settings);
+    cachingPrefser.put(GIVEN_KEY, new CustomClass(23, "someText"));
+    cachingPrefser.get(GIVEN_KEY, CustomClass.class, null);
+    CustomClass updatedObject = new CustomClass(24, "updatedText");
+
+    // when
+    cachingPrefser.put(GIVEN_KEY, updatedObject);
+
+    // then
+    assertThat(cachingPrefser.get(GIVEN_KEY, CustomClass.class, null)).isEqualTo(updatedObject);
+  }
+
+  @Test public void testGetPendingValueAndFlushItWhenWriteBehindIsEnabled() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder()
+        .writeBehind(1, TimeUnit.MINUTES)
+        .writeBehindScheduler(new TestScheduler())
+        .build();
+    Prefser writeBehindPrefser = new Prefser(preferences, new GsonConverter(), settings);
+
+    // when
+    writeBehindPrefser.put(GIVEN_KEY, 1);
+    writeBehindPrefser.put(GIVEN_KEY, 2);
+
+    // then
+    assertThat(writeBehindPrefser.get(GIVEN_KEY, Integer.class, 0)).isEqualTo(2);
+    assertThat(preferences.contains(GIVEN_KEY)).isFalse();
+    writeBehindPrefser.flush();
+    assertThat(preferences.getInt(GIVEN_KEY, 0)).isEqualTo(2);
+  }
+
+  @Test public void testPutAndGetValueInBinaryFormWhenBinaryCodecIsRegistered() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().defaultBinaryCodecs().build();
+    Prefser binaryPrefser = new Prefser(preferences, new GsonConverter(), settings);
+    int[] givenValue = { 1, 2, 3 };
+
+    // when
+    binaryPrefser.put(GIVEN_KEY, givenValue);
+
+    // then
+    assertThat(preferences.getString(GIVEN_KEY, null)).startsWith(BinaryValues.PREFIX);
+    assertThat(binaryPrefser.get(GIVEN_KEY, int[].class, null)).isEqualTo(givenValue);
+  }
+
+  @Test public void testGetValueStoredAsJsonBeforeBinaryCodecWasRegistered() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    new Prefser(preferences).put(GIVEN_KEY, new int[] { 1, 2, 3 });
+    PrefserSettings settings = PrefserSettings.builder()
+        .binaryCodec(int[].class, BinaryCodecs.INT_ARRAY)
+        .build();
+
+    // when
+    Prefser binaryPrefser = new Prefser(preferences, new GsonConverter(), settings);
+
+    // then
+    assertThat(binaryPrefser.get(GIVEN_KEY, int[].class, null)).isEqualTo(new int[] { 1, 2, 3 });
+  }
+
+  @Test public void testPutAndGetCompressedValueWhenItIsLongerThanThreshold() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().compressionThreshold(100).build();
+    Prefser compressingPrefser = new Prefser(preferences, new GsonConverter(), settings);
+    List<String> givenValue = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      givenValue.add("value" + i);
+    }
+    TypeToken<List<String>> typeToken = new TypeToken<List<String>>() {
+    };
+
+    // when
+    compressingPrefser.put(GIVEN_KEY, givenValue, typeToken);
+
+    // then
+    assertThat(preferences.getString(GIVEN_KEY, null)).startsWith(CompressedValues.PREFIX);
+    assertThat(compressingPrefser.get(GIVEN_KEY, typeToken, null)).isEqualTo(givenValue);
+    assertThat(new Prefser(preferences).get(GIVEN_KEY, typeToken, null)).isEqualTo(givenValue);
+  }
+
+  @Test public void testShouldNotCompressValueWhenItIsShorterThanThreshold() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().compressionThreshold(100).build();
+    Prefser compressingPrefser = new Prefser(preferences, new GsonConverter(), settings);
+
+    // when
+    compressingPrefser.put(GIVEN_KEY, Arrays.asList("one", "two"));
+
+    // then
+    assertThat(preferences.getString(GIVEN_KEY, null)).isEqualTo("[\"one\",\"two\"]");
+  }
+
+  @Test public void testPutAndGetValueSplitIntoChunks() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    Prefser chunkingPrefser = new Prefser(preferences, new GsonConverter(), settings);
+    List<String> givenValue = Arrays.asList("first value", "second value", "third value");
+    TypeToken<List<String>> typeToken = new TypeToken<List<String>>() {
+    };
+
+    // when
+    chunkingPrefser.put(GIVEN_KEY, givenValue, typeToken);
+
+    // then
+    assertThat(preferences.getString(GIVEN_KEY, null)).startsWith(ChunkedValues.HEADER_PREFIX);
+    assertThat(chunkingPrefser.get(GIVEN_KEY, typeToken, null)).isEqualTo(givenValue);
+    assertThat(new Prefser(preferences).get(GIVEN_KEY, typeToken, null)).isEqualTo(givenValue);
+    assertThat(chunkingPrefser.size()).isEqualTo(1);
+  }
+
+  @Test public void testRemoveValueWithItsChunks() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    Prefser chunkingPrefser = new Prefser(preferences, new GsonConverter(), settings);
+    chunkingPrefser.put(GIVEN_KEY, Arrays.asList("first value", "second value", "third value"));
+
+    // when
+    chunkingPrefser.remove(GIVEN_KEY);
+
+    // then
+    assertThat(preferences.getAll()).isEmpty();
+  }
+
+  @Test public void testPutShouldRemoveChunksWhenChunksAreDisabled() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    new Prefser(preferences, new GsonConverter(), settings)
+        .put(GIVEN_KEY, Arrays.asList("first value", "second value", "third value"));
+
+    // when
+    new Prefser(preferences).put(GIVEN_KEY, Arrays.asList("first value", "second value"));
+
+    // then
+    assertThat(preferences.getAll()).hasSize(1);
+  }
+
+  @Test public void testPutShouldRemoveChunksWhenValueOfOtherTypeIsWritten() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    Prefser chunkingPrefser = new Prefser(preferences, new GsonConverter(), settings);
+    chunkingPrefser.put(GIVEN_KEY, Arrays.asList("first value", "second value", "third value"));
+
+    // when
+    chunkingPrefser.putInt(GIVEN_KEY, 1);
+
+    // then
+    assertThat(preferences.getAll()).hasSize(1);
+    assertThat(chunkingPrefser.getInt(GIVEN_KEY, 0)).isEqualTo(1);
+  }
+
+  @Test public void testPutOfValueWithoutChunksShouldNotLookForChunks() {
+    // given
+    SharedPreferences preferences =
+        mock(SharedPreferences.class, delegatesTo(new InMemoryPreferences()));
+    Prefser prefserWithoutChunks = new Prefser(preferences);
+
+    // when
+    prefserWithoutChunks.putInt(GIVEN_KEY, 1);
+    prefserWithoutChunks.put(GIVEN_KEY, "value");
+
+    // then
+    verify(preferences, never()).contains(ChunkedValues.chunkKey(GIVEN_KEY, 0));
+  }
+
+  @Test public void testChunkedValueShouldBeReadWhileOtherKeyIsWritten() throws Exception {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    final Prefser chunkingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    final List<String> firstValue = Arrays.asList("first value", "second value", "x");
+    final List<String> secondValue = Arrays.asList("first value", "2nd value", "yyyyyyy");
+    chunkingPrefser.put(GIVEN_KEY, firstValue);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    Thread valueWriter = new Thread(new Runnable() {
+      @Override public void run() {
+        for (int i = 0; !stopped.get(); i++) {
+          chunkingPrefser.put(GIVEN_KEY, i % 2 == 0 ? secondValue : firstValue);
+        }
+      }
+    });
+    Thread otherKeyWriter = new Thread(new Runnable() {
+      @Override public void run() {
+        for (int i = 0; !stopped.get(); i++) {
+          chunkingPrefser.putInt("otherKey", i);
+        }
+      }
+    });
+    List<Object> readValues = new ArrayList<>();
+
+    // when
+    valueWriter.start();
+    otherKeyWriter.start();
+    try {
+      for (int i = 0; i < 2000; i++) {
+        readValues.add(chunkingPrefser.get(GIVEN_KEY, List.class, null));
+      }
+    } finally {
+      stopped.set(true);
+      valueWriter.join();
+      otherKeyWriter.join();
+    }
+
+    // then
+    for (Object readValue : readValues) {
+      assertThat(readValue).isAnyOf(firstValue, secondValue);
+    }
+  }
+
+  @Test public void testTransactionShouldWriteAllChunksAfterRemovingValue() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    Prefser chunkingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    List<String> givenValue = Arrays.asList("first value", "second value", "third value");
+    chunkingPrefser.put(GIVEN_KEY, givenValue);
+
+    // when
+    chunkingPrefser.edit().remove(GIVEN_KEY).put(GIVEN_KEY, givenValue).commit();
+
+    // then
+    assertThat(chunkingPrefser.get(GIVEN_KEY, List.class, null)).isEqualTo(givenValue);
+  }
+
+  @Test public void testTransactionShouldWriteAllChunksAfterClearingPreferences() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    Prefser chunkingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    List<String> givenValue = Arrays.asList("first value", "second value", "third value");
+    chunkingPrefser.put(GIVEN_KEY, givenValue);
+
+    // when
+    chunkingPrefser.edit().clear().put(GIVEN_KEY, givenValue).commit();
+
+    // then
+    assertThat(chunkingPrefser.get(GIVEN_KEY, List.class, null)).isEqualTo(givenValue);
+  }
+
+  @Test public void testTransactionShouldNotSkipUnchangedValueAfterRemovingIt() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().skipUnchangedWrites(true).build();
+    Prefser skippingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    skippingPrefser.put(GIVEN_KEY, GIVEN_STRING_VALUE);
+
+    // when
+    skippingPrefser.edit().remove(GIVEN_KEY).put(GIVEN_KEY, GIVEN_STRING_VALUE).commit();
+
+    // then
+    assertThat(skippingPrefser.get(GIVEN_KEY, String.class, null)).isEqualTo(GIVEN_STRING_VALUE);
+  }
+
+  @Test public void testTransactionShouldNotSkipUnchangedValueAfterClearingPreferences() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().skipUnchangedWrites(true).build();
+    Prefser skippingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    skippingPrefser.put(GIVEN_KEY, Arrays.asList("first value", "second value"));
+
+    // when
+    skippingPrefser.edit().clear()
+        .put(GIVEN_KEY, Arrays.asList("first value", "second value"))
+        .commit();
+
+    // then
+    assertThat(skippingPrefser.get(GIVEN_KEY, List.class, null))
+        .isEqualTo(Arrays.asList("first value", "second value"));
+    assertThat(skippingPrefser.size()).isEqualTo(1);
+  }
+
+  @Test public void testVersionShouldIncreaseOnlyWhenValueIsWritten() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    long initialVersion = inMemoryPrefser.version(GIVEN_KEY);
+
+    // when
+    inMemoryPrefser.put(GIVEN_KEY, 1);
+    long versionAfterPut = inMemoryPrefser.version(GIVEN_KEY);
+    inMemoryPrefser.get(GIVEN_KEY, Integer.class, 0);
+    inMemoryPrefser.put("otherKey", 2);
+
+    // then
+    assertThat(versionAfterPut).isGreaterThan(initialVersion);
+    assertThat(inMemoryPrefser.version(GIVEN_KEY)).isEqualTo(versionAfterPut);
+    assertThat(inMemoryPrefser.globalVersion()).isGreaterThan(versionAfterPut);
+  }
+
+  @Test public void testVersionShouldIncreaseWhenValueIsChangedOutsideOfPrefser() {
+    // given
+    InMemoryPreferences preferences = new InMemoryPreferences();
+    Prefser inMemoryPrefser = new Prefser(preferences);
+    long initialVersion = inMemoryPrefser.version(GIVEN_KEY);
+
+    // when
+    preferences.edit().putString(GIVEN_KEY, GIVEN_STRING_VALUE).commit();
+
+    // then
+    assertThat(inMemoryPrefser.version(GIVEN_KEY)).isGreaterThan(initialVersion);
+  }
+
+  @Test public void testVersionsOfAllKeysShouldIncreaseWhenPreferencesAreCleared() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, 1);
+    long initialVersion = inMemoryPrefser.version(KEY_WHICH_DOES_NOT_EXIST);
+
+    // when
+    inMemoryPrefser.clear();
+
+    // then
+    assertThat(inMemoryPrefser.version(KEY_WHICH_DOES_NOT_EXIST)).isGreaterThan(initialVersion);
+  }
+
+  @Test public void testPutIfChangedShouldSkipWriteOfTheSameValue() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, GIVEN_STRING_VALUE);
+    long versionAfterPut = inMemoryPrefser.version(GIVEN_KEY);
+
+    // when
+    boolean written = inMemoryPrefser.putIfChanged(GIVEN_KEY, GIVEN_STRING_VALUE);
+
+    // then
+    assertThat(written).isFalse();
+    assertThat(inMemoryPrefser.version(GIVEN_KEY)).isEqualTo(versionAfterPut);
+  }
+
+  @Test public void testPutIfChangedShouldWriteDifferentValue() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    inMemoryPrefser.put(GIVEN_KEY, GIVEN_STRING_VALUE);
+    long versionAfterPut = inMemoryPrefser.version(GIVEN_KEY);
+
+    // when
+    boolean written = inMemoryPrefser.putIfChanged(GIVEN_KEY, "other value");
+
+    // then
+    assertThat(written).isTrue();
+    assertThat(inMemoryPrefser.get(GIVEN_KEY, String.class, null)).isEqualTo("other value");
+    assertThat(inMemoryPrefser.version(GIVEN_KEY)).isGreaterThan(versionAfterPut);
+  }
+
+  @Test public void testPutIfChangedShouldCompareValuesStoredAsJson() {
+    // given
+    Prefser inMemoryPrefser = new Prefser(new InMemoryPreferences());
+    List<String> givenList = Arrays.asList("first value", "second value");
+    inMemoryPrefser.put(GIVEN_KEY, givenList);
+
+    // when
+    boolean sameWritten =
+        inMemoryPrefser.putIfChanged(GIVEN_KEY, Arrays.asList("first value", "second value"));
+    boolean otherWritten = inMemoryPrefser.putIfChanged(GIVEN_KEY, Arrays.asList("first value"));
+
+    // then
+    assertThat(sameWritten).isFalse();
+    assertThat(otherWritten).isTrue();
+  }
+
+  @Test public void testPutIfChangedShouldCompareChunkedValues() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(16).build();
+    Prefser chunkingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    chunkingPrefser.put(GIVEN_KEY, Arrays.asList("first value", "second value", "third value"));
+
+    // when
+    boolean sameWritten = chunkingPrefser.putIfChanged(GIVEN_KEY,
+        Arrays.asList("first value", "second value", "third value"));
+    boolean otherWritten = chunkingPrefser.putIfChanged(GIVEN_KEY,
+        Arrays.asList("first value", "second value", "fourth value"));
+
+    // then
+    assertThat(sameWritten).isFalse();
+    assertThat(otherWritten).isTrue();
+  }
+
+  @Test public void testPutIfChangedShouldWriteChunkedValueWithTheSameHashCode() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().chunkSize(2).build();
+    Prefser chunkingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    chunkingPrefser.put(GIVEN_KEY, Arrays.asList("AaAa"));
+
+    // when
+    boolean written = chunkingPrefser.putIfChanged(GIVEN_KEY, Arrays.asList("BBBB"));
+
+    // then "AaAa" and "BBBB" have the same String#hashCode()
+    assertThat(written).isTrue();
+    assertThat(chunkingPrefser.get(GIVEN_KEY, List.class, null)).isEqualTo(Arrays.asList("BBBB"));
+  }
+
+  @Test public void testPutShouldSkipUnchangedValuesWhenEnabledInSettings() {
+    // given
+    PrefserSettings settings = PrefserSettings.builder().skipUnchangedWrites(true).build();
+    Prefser skippingPrefser =
+        new Prefser(new InMemoryPreferences(), new GsonConverter(), settings);
+    skippingPrefser.putInt(GIVEN_KEY, 1);
+    long versionAfterPut = skippingPrefser.version(GIVEN_KEY);
+
+    // when
+    skippingPrefser.putInt(GIVEN_KEY, 1);
+    long versionAfterSameValue = skippingPrefser.version(GIVEN_KEY);
+    skippingPrefser.putInt(GIVEN_KEY, 2);
+
+    // then
+    assertThat(versionAfterSameValue).isEqualTo(versionAfterPut);
+    assertThat(skippingPrefser.version(GIVEN_KEY)).isGreaterThan(versionAfterPut);
+    assertThat(skippingPrefser.getInt(GIVEN_KEY, 0)).isEqualTo(2);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testPrefserWithSettingsShouldThrowAnExceptionWhenSettingsAreNull() {
+    // given
+    Context context = RuntimeEnvironment.application.getApplicationContext();
+
+    // when
+    new Prefser(context, new GsonConverter(), null);
+
+    // then throw an exception
+  }
+
   @Test public void testPutListOfBooleans() throws Exception {
     // given
     prefser.clear();
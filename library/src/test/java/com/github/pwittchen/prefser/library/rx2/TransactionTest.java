@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.Context;
+import com.github.pwittchen.prefser.library.rx2.utils.RecordingObserver;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class TransactionTest {
+
+  private Prefser prefser;
+
+  @Before public void setUp() {
+    final Context context = RuntimeEnvironment.application.getApplicationContext();
+    prefser = new Prefser(context);
+    prefser.clear();
+  }
+
+  @After public void tearDown() {
+    prefser.clear();
+  }
+
+  @Test public void testShouldNotWriteValuesBeforeApply() {
+    // given
+    Transaction transaction = prefser.edit();
+
+    // when
+    transaction.put("key1", 1).put("key2", "two");
+
+    // then
+    assertThat(prefser.contains("key1")).isFalse();
+    assertThat(prefser.contains("key2")).isFalse();
+  }
+
+  @Test public void testShouldWriteAllValuesOnApply() {
+    // given
+    List<String> givenList = Arrays.asList("one", "two", "three");
+    TypeToken<List<String>> typeToken = new TypeToken<List<String>>() {
+    };
+
+    // when
+    prefser.edit()
+        .put("booleanKey", true)
+        .put("intKey", 42)
+        .put("doubleKey", 4.2)
+        .put("listKey", givenList, typeToken)
+        .apply();
+
+    // then
+    assertThat(prefser.get("booleanKey", Boolean.class, false)).isTrue();
+    assertThat(prefser.get("intKey", Integer.class, 0)).isEqualTo(42);
+    assertThat(prefser.get("doubleKey", Double.class, 0.0)).isEqualTo(4.2);
+    assertThat(prefser.get("listKey", typeToken, null)).isEqualTo(givenList);
+  }
+
+  @Test public void testShouldWriteAndRemoveValuesOnCommit() {
+    // given
+    prefser.put("oldKey", "oldValue");
+
+    // when
+    boolean committed = prefser.edit().put("newKey", "newValue").remove("oldKey").commit();
+
+    // then
+    assertThat(committed).isTrue();
+    assertThat(prefser.contains("oldKey")).isFalse();
+    assertThat(prefser.get("newKey", String.class, "")).isEqualTo("newValue");
+  }
+
+  @Test public void testShouldClearValuesBeforeWritingNewOnes() {
+    // given
+    prefser.put("key1", 1);
+    prefser.put("key2", 2);
+
+    // when
+    prefser.edit().clear().put("key3", 3).commit();
+
+    // then
+    assertThat(prefser.size()).isEqualTo(1);
+    assertThat(prefser.get("key3", Integer.class, 0)).isEqualTo(3);
+  }
+
+  @Test public void testShouldNotifyObserverOncePerChangedKey() {
+    // given
+    RecordingObserver<String> observer = new RecordingObserver<>();
+    prefser.observePreferences().subscribe(observer);
+
+    // when
+    prefser.edit().put("key1", 1).put("key1", 2).apply();
+
+    // then
+    assertThat(observer.takeNext()).isEqualTo("key1");
+    observer.assertNoMoreEvents();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testShouldThrowAnExceptionWhenKeyIsNullForPut() {
+    prefser.edit().put(null, 1);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testShouldThrowAnExceptionWhenValueIsNullForPut() {
+    prefser.edit().put("key", null);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testShouldThrowAnExceptionWhenKeyIsNullForRemove() {
+    prefser.edit().remove(null);
+  }
+}
@@ -42,6 +42,26 @@ final public class TypeTokenTest {
     TypeToken.fromValue(null);
   }
 
+  @Test public void testShouldReuseTypeTokenCreatedFromClass() {
+    // when
+    TypeToken<String> typeToken = TypeToken.fromClass(String.class);
+    TypeToken<String> anotherTypeToken = TypeToken.fromClass(String.class);
+
+    // then
+    assertThat(typeToken).isSameInstanceAs(anotherTypeToken);
+    assertThat(typeToken.getType()).isEqualTo(String.class);
+  }
+
+  @Test public void testShouldReuseTypeTokenCreatedFromValue() {
+    // when
+    TypeToken<Integer> typeToken = TypeToken.fromValue(42);
+    TypeToken<Integer> anotherTypeToken = TypeToken.fromClass(Integer.class);
+
+    // then
+    assertThat(typeToken).isSameInstanceAs(anotherTypeToken);
+    assertThat(typeToken.getType()).isEqualTo(Integer.class);
+  }
+
   @Test public void testShouldReturnTypeWhenItIsGivenWhileObjectCreation() {
     // given
     TypeToken<Boolean> typeToken = new TypeToken<Boolean>() {
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 Piotr Wittchen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pwittchen.prefser.library.rx2;
+
+import android.content.SharedPreferences;
+import io.reactivex.schedulers.TestScheduler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE)
+public final class WriteBehindPreferencesTest {
+
+  private final InMemoryPreferences decoratedPreferences = new InMemoryPreferences();
+  private final TestScheduler scheduler = new TestScheduler();
+  private final WriteBehindPreferences preferences =
+      new WriteBehindPreferences(decoratedPreferences, scheduler, 100);
+
+  private static class RecordingListener
+      implements SharedPreferences.OnSharedPreferenceChangeListener {
+    private final List<String> keys = new ArrayList<>();
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+      keys.add(key);
+    }
+  }
+
+  @Test public void testShouldReadPendingValuesBeforeFlush() {
+    // when
+    preferences.edit().putInt("key", 42).putString("anotherKey", "value").apply();
+
+    // then
+    assertThat(preferences.getInt("key", 0)).isEqualTo(42);
+    assertThat(preferences.getString("anotherKey", null)).isEqualTo("value");
+    assertThat(preferences.getAll()).hasSize(2);
+    assertThat(decoratedPreferences.contains("key")).isFalse();
+  }
+
+  @Test public void testShouldWritePendingValuesAfterInterval() {
+    // given
+    preferences.edit().putInt("key", 42).apply();
+
+    // when
+    scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+    // then
+    assertThat(decoratedPreferences.getInt("key", 0)).isEqualTo(42);
+    assertThat(preferences.getInt("key", 0)).isEqualTo(42);
+  }
+
+  @Test public void testShouldWriteOnlyLastValueOfTheSameKey() {
+    // given
+    RecordingListener listener = new RecordingListener();
+    preferences.registerOnSharedPreferenceChangeListener(listener);
+
+    // when
+    for (int i = 0; i < 10; i++) {
+      preferences.edit().putInt("key", i).apply();
+    }
+    scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+    // then
+    assertThat(listener.keys).containsExactly("key");
+    assertThat(decoratedPreferences.getInt("key", 0)).isEqualTo(9);
+  }
+
+  @Test public void testShouldHidePendingRemovedAndClearedValues() {
+    // given
+    decoratedPreferences.edit().putInt("removed", 1).putInt("cleared", 2).commit();
+
+    // when
+    preferences.edit().remove("removed").apply();
+    preferences.edit().clear().putInt("key", 42).apply();
+
+    // then
+    assertThat(preferences.contains("removed")).isFalse();
+    assertThat(preferences.contains("cleared")).isFalse();
+    assertThat(preferences.getAll()).hasSize(1);
+    assertThat(decoratedPreferences.getAll()).hasSize(2);
+  }
+
+  @Test public void testShouldWritePendingValuesOnCommit() {
+    // given
+    preferences.edit().putInt("key", 42).apply();
+
+    // when
+    boolean committed = preferences.edit().putInt("anotherKey", 43).commit();
+
+    // then
+    assertThat(committed).isTrue();
+    assertThat(decoratedPreferences.getInt("key", 0)).isEqualTo(42);
+    assertThat(decoratedPreferences.getInt("anotherKey", 0)).isEqualTo(43);
+  }
+}